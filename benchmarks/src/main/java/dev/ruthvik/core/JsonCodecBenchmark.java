@@ -0,0 +1,87 @@
+package dev.ruthvik.core;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serializing through a String (the old setJson/getJson path) against streaming through the codec, for 1 KB,
+// 100 KB and 10 MB documents. JMH port of src/test/java/dev/ruthvik/core/JsonBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class JsonCodecBenchmark {
+    private static final Type ITEMS = new TypeToken<List<Item>>() {
+    }.getType();
+
+    @Param({"1024", "102400", "10485760"})
+    private int payloadSize;
+
+    private Gson gson;
+    private JsonCodec codec;
+    private List<Item> items;
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        gson = new Gson();
+        codec = new GsonCodec(gson);
+        items = new ArrayList<>();
+        // Each item serializes to roughly 100 bytes
+        for (int i = 0; i < Math.max(1, payloadSize / 100); i++) {
+            items.add(new Item(i, "user-" + i, "user" + i + "@example.com", i % 2 == 0, List.of("alpha", "beta")));
+        }
+        json = gson.toJson(items).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] stringWrite() {
+        return gson.toJson(items).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long codecWrite() throws IOException {
+        CountingSink sink = new CountingSink();
+        codec.write(items, sink);
+        return sink.count;
+    }
+
+    @Benchmark
+    public List<Item> stringRead() {
+        return gson.fromJson(new String(json, StandardCharsets.UTF_8), ITEMS);
+    }
+
+    @Benchmark
+    public List<Item> codecRead() throws IOException {
+        return codec.read(new ByteArrayInputStream(json), ITEMS);
+    }
+
+    record Item(int id, String name, String email, boolean active, List<String> tags) {
+    }
+
+    // Stands in for the socket: counts bytes without keeping them
+    private static final class CountingSink extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.HttpStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-request cost of ServerMetrics.record, single-threaded and with threads contending on the same routes.
+// JMH port of src/test/java/dev/ruthvik/core/MetricsBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class MetricsRecordingBenchmark {
+    private static final String[] ROUTES = {"/", "/users/:id", "/users/:id/orders", "/assets/**"};
+
+    // Shared by every thread of a run, as one server's metrics are
+    private ServerMetrics metrics;
+
+    @Setup
+    public void setUp() {
+        metrics = new ServerMetrics();
+    }
+
+    @State(Scope.Thread)
+    public static class Counter {
+        private int next;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void recordAlone(Counter counter) {
+        record(counter);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended4(Counter counter) {
+        record(counter);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void recordContended16(Counter counter) {
+        record(counter);
+    }
+
+    private void record(Counter counter) {
+        int i = counter.next++;
+        metrics.record(ROUTES[i & 3], HttpStatus.OK, 50_000 + (i & 0xFFFF), 512);
+    }
+}
@@ -0,0 +1,67 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpMethod;
+import dev.ruthvik.enums.HttpStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Router.match dispatch through a route's fused middleware chain, for each middleware style.
+// JMH port of src/test/java/dev/ruthvik/core/MiddlewareBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class MiddlewareChainBenchmark {
+
+    @Param({"0", "5", "20"})
+    private int middlewareCount;
+
+    @Param({"simple", "optional", "around"})
+    private String style;
+
+    private Router router;
+    private Request request;
+
+    @Setup
+    public void setUp() {
+        Supplier<AroundMiddleware> factory = switch (style) {
+            case "simple" -> () -> AroundMiddleware.wrapping(req -> {
+            });
+            case "optional" -> () -> AroundMiddleware.of(req -> Optional.empty());
+            default -> () -> (req, next) -> next.handle(req);
+        };
+        router = new Router();
+        Response ok = new Response();
+        ok.setText("ok", HttpStatus.OK);
+
+        // Split between global and route-level middlewares, as a typical app would register them
+        List<AroundMiddleware> routeMiddlewares = new ArrayList<>();
+        for (int i = 0; i < middlewareCount; i++) {
+            if (i % 2 == 0) {
+                router.addGlobalMiddleware(factory.get());
+            } else {
+                routeMiddlewares.add(factory.get());
+            }
+        }
+        router.add(HttpMethod.GET, "/api/v1/users/:id", routeMiddlewares, req -> ok);
+
+        Headers headers = new Headers();
+        headers.set(Header.HOST, "localhost");
+        request = new Request("GET", "/api/v1/users/42", "HTTP/1.1", headers,
+                InputStream.nullInputStream(), ServerConfig.defaults());
+    }
+
+    @Benchmark
+    public Response dispatch() {
+        return router.match(request);
+    }
+}
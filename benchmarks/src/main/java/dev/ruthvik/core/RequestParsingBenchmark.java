@@ -0,0 +1,130 @@
+package dev.ruthvik.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// RequestParser.parse for a minimal GET, a browser-like GET with a large header section, and a multipart
+// upload parsed through streamMultiPartFormData, replayed from memory as pipelined requests on one connection.
+// JMH port of src/test/java/dev/ruthvik/core/RequestParserBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class RequestParsingBenchmark {
+    private static final String BOUNDARY = "----http4jBenchmarkBoundary";
+
+    @Param({"small", "large", "multipart"})
+    private String request;
+
+    private RequestParser parser;
+    private boolean multipart;
+
+    @Setup
+    public void setUp() {
+        byte[] bytes = switch (request) {
+            case "small" -> smallRequest();
+            case "large" -> largeRequest();
+            default -> multipartRequest();
+        };
+        multipart = request.equals("multipart");
+        parser = new RequestParser(new RepeatingInputStream(bytes), ServerConfig.defaults());
+    }
+
+    @TearDown
+    public void tearDown() {
+        parser.release();
+    }
+
+    @Benchmark
+    public long parse() throws IOException {
+        Request parsed = parser.parse();
+        long sink = parsed.getUrl().length();
+        if (multipart) {
+            long[] parts = new long[1];
+            parsed.streamMultiPartFormData((name, value) -> parts[0] += value.length(),
+                    (name, file) -> parts[0] += file.getSize());
+            parsed.cleanup();
+            sink += parts[0];
+        }
+        // Anything a handler left unread, as Connection does before the next request
+        parsed.discardUnreadBody(Long.MAX_VALUE);
+        return sink;
+    }
+
+    private static byte[] smallRequest() {
+        return ("GET /api/v1/users/42 HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] largeRequest() {
+        StringBuilder request = new StringBuilder("GET /api/v1/users/42/orders?page=2&sort=desc HTTP/1.1\r\n")
+                .append("Host: localhost:8080\r\n")
+                .append("User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0 Safari/537.36\r\n")
+                .append("Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8\r\n")
+                .append("Accept-Language: en-US,en;q=0.9\r\n")
+                .append("Accept-Encoding: gzip, deflate, br\r\n")
+                .append("Connection: keep-alive\r\n")
+                .append("Cache-Control: max-age=0\r\n")
+                .append("Referer: https://example.com/dashboard\r\n")
+                .append("Cookie: session=").append("s".repeat(64)).append("; theme=dark; csrf=").append("c".repeat(32)).append("\r\n");
+        // Tracing and proxy headers the server doesn't know by name
+        for (int i = 0; i < 20; i++) {
+            request.append("X-Trace-Field-").append(i).append(": ").append("v".repeat(24)).append("\r\n");
+        }
+        return request.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] multipartRequest() {
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                + "Quarterly report\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"description\"\r\n\r\n"
+                + "d".repeat(512) + "\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"report.csv\"\r\n"
+                + "Content-Type: text/csv\r\n\r\n"
+                + "id,name,amount\n".repeat(1000) + "\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+        String head = "POST /upload HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Content-Type: multipart/form-data; boundary=" + BOUNDARY + "\r\n"
+                + "Content-Length: " + body.length() + "\r\n"
+                + "\r\n";
+        return (head + body).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    // Endless stream of the same request, handed out in socket-sized reads
+    private static final class RepeatingInputStream extends InputStream {
+        private static final int MAX_READ = 16 * 1024;
+
+        private final byte[] request;
+        private int position;
+
+        private RepeatingInputStream(byte[] request) {
+            this.request = request;
+        }
+
+        @Override
+        public int read() {
+            int value = request[position] & 0xFF;
+            position = (position + 1) % request.length;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            int read = Math.min(Math.min(length, MAX_READ), request.length - position);
+            System.arraycopy(request, position, target, offset, read);
+            position = (position + read) % request.length;
+            return read;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Response.sendOutput for the common body kinds, from building the response in a handler to the bytes
+// reaching a buffered socket stream that discards them. JMH port of src/test/java/dev/ruthvik/core/ResponseBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ResponseWritingBenchmark {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final byte[] payload = new byte[64 * 1024];
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private JsonCodec codec;
+    private ResponseHeadWriter head;
+    private OutputStream output;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < 200; i++) {
+            rows.add(Map.of("id", i, "name", "user-" + i, "active", i % 2 == 0));
+        }
+        codec = ServerConfig.defaults().getJsonCodec();
+        head = new ResponseHeadWriter();
+        output = new BufferedOutputStream(OutputStream.nullOutputStream(), BUFFER_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        head.release();
+    }
+
+    @Benchmark
+    public long text() throws IOException {
+        Response response = new Response();
+        response.setText("Hello, world!", HttpStatus.OK);
+        return response.sendOutput(output, null, head, codec);
+    }
+
+    @Benchmark
+    public long textWithHeaders() throws IOException {
+        Response response = new Response();
+        response.setHeader(Header.CACHE_CONTROL, "no-cache");
+        response.setHeader("X-Request-Id", "0f8fad5b-d9cb-469f-a165-70867728950e");
+        response.addCookie(Cookie.builder().name("session").value("abc123").path("/").httpOnly(true).build());
+        response.setText("Hello, world!", HttpStatus.OK);
+        return response.sendOutput(output, null, head, codec);
+    }
+
+    @Benchmark
+    public long bytes64k() throws IOException {
+        Response response = new Response();
+        response.send(payload, HttpStatus.OK);
+        return response.sendOutput(output, null, head, codec);
+    }
+
+    @Benchmark
+    public long json200Rows() throws IOException {
+        Response response = new Response();
+        response.setJson(rows, HttpStatus.OK);
+        return response.sendOutput(output, null, head, codec);
+    }
+
+    @Benchmark
+    public long stream64k() throws IOException {
+        Response response = new Response();
+        response.stream(out -> {
+            for (int i = 0; i < payload.length; i += 4096) {
+                out.write(payload, i, 4096);
+            }
+        }, HttpStatus.OK);
+        return response.sendOutput(output, null, head, codec);
+    }
+}
@@ -0,0 +1,69 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpMethod;
+import dev.ruthvik.enums.HttpStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Router.match latency as the route table grows, over a fixed mix of static, one-param and two-param routes.
+// JMH port of src/test/java/dev/ruthvik/core/RouterBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class RoutingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int routeCount;
+
+    private Router router;
+    private Request[] requests;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        router = new Router();
+        Response ok = new Response();
+        ok.setText("ok", HttpStatus.OK);
+
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < routeCount; i++) {
+            switch (i % 3) {
+                case 0 -> {
+                    router.add(HttpMethod.GET, "/api/v1/resource" + i, List.of(), req -> ok);
+                    urls.add("/api/v1/resource" + i);
+                }
+                case 1 -> {
+                    router.add(HttpMethod.GET, "/api/v1/resource" + i + "/:id", List.of(), req -> ok);
+                    urls.add("/api/v1/resource" + i + "/42");
+                }
+                default -> {
+                    router.add(HttpMethod.GET, "/api/v1/resource" + i + "/:id/items/:itemId", List.of(), req -> ok);
+                    urls.add("/api/v1/resource" + i + "/42/items/7?expand=true");
+                }
+            }
+        }
+
+        Headers headers = new Headers();
+        headers.set(Header.HOST, "localhost");
+        requests = new Request[1024];
+        Random random = new Random(42);
+        for (int i = 0; i < requests.length; i++) {
+            String url = urls.get(random.nextInt(urls.size()));
+            requests[i] = new Request("GET", url, "HTTP/1.1", headers, InputStream.nullInputStream(), ServerConfig.defaults());
+        }
+    }
+
+    @Benchmark
+    public Response match() {
+        return router.match(requests[next++ & (requests.length - 1)]);
+    }
+}
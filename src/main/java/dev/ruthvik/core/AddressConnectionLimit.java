@@ -0,0 +1,36 @@
+package dev.ruthvik.core;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Open connections per client address, for ServerConfig.maxConnectionsPerAddress. Addresses are dropped
+// from the map as their last connection closes, so it only ever holds currently connected clients.
+final class AddressConnectionLimit {
+    private final int max;
+    private final ConcurrentHashMap<InetAddress, Integer> open = new ConcurrentHashMap<>();
+
+    AddressConnectionLimit(int max) {
+        this.max = max;
+    }
+
+    // False when the address already holds max connections; a true result must be paired with release()
+    boolean tryAcquire(InetAddress address) {
+        if (max <= 0 || address == null) {
+            return true;
+        }
+        boolean[] acquired = new boolean[1];
+        open.compute(address, (key, count) -> {
+            int current = count == null ? 0 : count;
+            acquired[0] = current < max;
+            return acquired[0] ? current + 1 : count;
+        });
+        return acquired[0];
+    }
+
+    void release(InetAddress address) {
+        if (max <= 0 || address == null) {
+            return;
+        }
+        open.computeIfPresent(address, (key, count) -> count == 1 ? null : count - 1);
+    }
+}
@@ -0,0 +1,27 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.exception.RequestException;
+
+import java.util.Optional;
+
+// Middleware that wraps the rest of the chain: it may answer on its own, or call next and inspect, time or
+// replace the response it returns. Every middleware kind is folded into one Handler per route at registration.
+@FunctionalInterface
+public interface AroundMiddleware {
+    Response handle(Request request, Handler next) throws RequestException;
+
+    // Distinct names rather than overloads, so an implicitly typed lambda picks one without a cast
+    static AroundMiddleware of(Middleware middleware) {
+        return (request, next) -> {
+            Optional<Response> response = middleware.handle(request);
+            return response.isPresent() ? response.get() : next.handle(request);
+        };
+    }
+
+    static AroundMiddleware wrapping(SimpleMiddleware middleware) {
+        return (request, next) -> {
+            middleware.handle(request);
+            return next.handle(request);
+        };
+    }
+}
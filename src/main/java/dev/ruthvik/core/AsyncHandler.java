@@ -0,0 +1,16 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.exception.RequestException;
+
+import java.util.concurrent.CompletionStage;
+
+// Handler that answers with a stage instead of a Response, e.g. to call several downstreams in parallel:
+//
+//     server.getAsync("/dashboard", Duration.ofSeconds(2), req -> users.fetch().thenCombine(orders.fetch(), View::render));
+//
+// The response is written once the stage completes. A stage still pending after the route's timeout is
+// cancelled and answered with 504, and one whose client disconnects is cancelled as well.
+@FunctionalInterface
+public interface AsyncHandler {
+    CompletionStage<Response> handle(Request request) throws RequestException;
+}
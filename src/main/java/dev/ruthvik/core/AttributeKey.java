@@ -0,0 +1,43 @@
+package dev.ruthvik.core;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Typed key for values a middleware attaches to a request for the ones after it and the handler:
+//
+//     static final AttributeKey<User> USER = AttributeKey.of("user");
+//     ...
+//     request.setAttribute(USER, authenticate(request));      // auth middleware
+//     User user = request.getAttributeOrThrow(USER);          // handler
+//
+// Every key gets its own slot index when created, so a request stores attributes in a small array instead
+// of a map. Keys are meant to be constants: each one created widens the array of every request that uses it.
+public final class AttributeKey<T> {
+    private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+
+    @Getter
+    private final String name;
+    private final int index;
+
+    private AttributeKey(String name) {
+        this.name = name;
+        this.index = NEXT_INDEX.getAndIncrement();
+    }
+
+    public static <T> AttributeKey<T> of(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Attribute name cannot be null or blank");
+        }
+        return new AttributeKey<>(name);
+    }
+
+    int index() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "AttributeKey(" + name + ")";
+    }
+}
@@ -0,0 +1,83 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.HttpStatus;
+import dev.ruthvik.exception.RequestException;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Adapts an AsyncHandler to the router's Handler so middlewares wrap it like any other route. Requests
+// already run on virtual threads, so waiting for the stage parks only that thread and never a carrier;
+// the wait is split into short slices to notice a disconnected client on the blocking engine.
+final class AwaitingHandler implements Handler {
+    private static final long PROBE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AsyncHandler handler;
+    private final long timeoutNanos;
+
+    AwaitingHandler(AsyncHandler handler, Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Async handler timeout must be positive");
+        }
+        this.handler = handler;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public Response handle(Request request) throws RequestException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        CompletableFuture<Response> future = Objects.requireNonNull(handler.handle(request), "AsyncHandler returned null")
+                .toCompletableFuture();
+        request.whenDisconnected(() -> future.cancel(true));
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                future.cancel(true);
+                throw new RequestException("Handler timed out", HttpStatus.GATEWAY_TIMEOUT);
+            }
+            try {
+                Response response = future.get(Math.min(remaining, PROBE_INTERVAL_NANOS), TimeUnit.NANOSECONDS);
+                if (response == null) {
+                    throw new IllegalStateException("Async handler completed without a response");
+                }
+                return response;
+            } catch (TimeoutException e) {
+                request.probeConnection();
+            } catch (CancellationException e) {
+                throw new RequestException("Request was cancelled", HttpStatus.SERVICE_UNAVAILABLE);
+            } catch (ExecutionException e) {
+                throw failure(e.getCause());
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new RequestException("Request was interrupted", HttpStatus.SERVICE_UNAVAILABLE);
+            }
+        }
+    }
+
+    // Failures keep the status they would have had from a synchronous handler
+    private static RuntimeException failure(Throwable cause) {
+        if (cause instanceof RequestException requestException) {
+            return requestException;
+        }
+        if (cause instanceof RejectedExecutionException || cause instanceof CancellationException) {
+            return new RequestException("Service Unavailable", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (cause instanceof TimeoutException) {
+            return new RequestException("Handler timed out", HttpStatus.GATEWAY_TIMEOUT);
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,218 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.HttpStatus;
+import dev.ruthvik.exception.RequestException;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ServerSocketChannel;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// Thread-per-connection engine: every accepted socket gets a virtual thread that blocks on its streams.
+// Read timeouts are enforced by SocketInput; a watchdog thread closes connections whose response stops
+// getting bytes out, as socket writes can't time out on their own.
+class BlockingEngine implements ServerEngine {
+    private static final int BUFFER_SIZE = 8192;
+    private static final long WATCHDOG_INTERVAL_MILLIS = 1000;
+
+    private final Router router;
+    private final ServerConfig config;
+    private final ServerMetrics metrics;
+    private final Semaphore connectionPermits;
+    private final AddressConnectionLimit addressLimit;
+    // Open connections, so a shutdown can close the idle ones and abort the ones that overrun it
+    private final Set<OpenConnection> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping;
+
+    BlockingEngine(Router router, ServerConfig config, ServerMetrics metrics) {
+        this.router = router;
+        this.config = config;
+        this.metrics = metrics;
+        this.connectionPermits = new Semaphore(config.getMaxConnections());
+        this.addressLimit = new AddressConnectionLimit(config.getMaxConnectionsPerAddress());
+    }
+
+    @Override
+    public void serve(ServerSocketChannel server) throws InterruptedException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor.execute(() -> watchWrites(server));
+            while (server.isOpen()) {
+                connectionPermits.acquire();
+                Socket client;
+                try {
+                    client = server.accept().socket();
+                } catch (IOException e) {
+                    connectionPermits.release();
+                    if (!server.isOpen()) {
+                        break;
+                    }
+                    System.err.println("Error accepting client: " + e.getMessage());
+                    continue;
+                }
+                executor.execute(() -> {
+                    try {
+                        handle(client);
+                    } finally {
+                        connectionPermits.release();
+                    }
+                });
+            }
+        }
+    }
+
+    @Override
+    public ShutdownReport shutdown(ServerSocketChannel server, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        // Set first, so the acceptor leaving serve() knows it is a shutdown and not a failure
+        stopping = true;
+        closeQuietly(server);
+        // Wakes an acceptor waiting for a free slot so it sees the closed server channel
+        connectionPermits.release();
+
+        int busy = 0;
+        for (OpenConnection open : connections) {
+            open.connection.drain();
+            if (open.connection.claimIdle()) {
+                closeQuietly(open.socket);
+            } else {
+                busy++;
+            }
+        }
+        while (!connections.isEmpty() && System.nanoTime() - deadline < 0) {
+            Thread.sleep(DRAIN_POLL_MILLIS);
+        }
+        int aborted = 0;
+        for (OpenConnection open : connections) {
+            aborted++;
+            closeQuietly(open.socket);
+            open.thread.interrupt();
+        }
+        return new ShutdownReport(Math.max(0, busy - aborted), aborted);
+    }
+
+    private void handle(Socket socket) {
+        Connection connection = new Connection(router, config, metrics);
+        if (socket.getRemoteSocketAddress() instanceof InetSocketAddress remote) {
+            connection.setRemoteAddress(remote);
+        }
+        InetAddress address = socket.getInetAddress();
+        boolean admitted = addressLimit.tryAcquire(address);
+        OpenConnection open = null;
+        RequestParser parser = null;
+        try (Socket client = socket) {
+            SocketOutput socketOutput = new SocketOutput(client.getOutputStream());
+            OutputStream output = new BufferedOutputStream(socketOutput, BUFFER_SIZE);
+            if (!admitted) {
+                connection.reject(new RequestException("Too many connections from this address",
+                        HttpStatus.TOO_MANY_REQUESTS), output);
+                return;
+            }
+            open = new OpenConnection(socket, connection, socketOutput, Thread.currentThread());
+            connections.add(open);
+            // Accepted just before the server stopped, after the shutdown went through the open connections
+            if (stopping) {
+                return;
+            }
+            parser = new RequestParser(new SocketInput(client, config), config);
+            // Channel-backed sockets let file responses use FileChannel.transferTo (sendfile)
+            connection.serve(parser, output, client.getChannel());
+        } catch (SocketTimeoutException e) {
+            // idle keep-alive connection, nothing left to answer
+        } catch (IOException e) {
+            if (!stopping) {
+                System.err.println("Error handling client: " + e.getMessage());
+            }
+        } finally {
+            if (open != null) {
+                connections.remove(open);
+            }
+            if (admitted) {
+                addressLimit.release(address);
+            }
+            if (parser != null) {
+                parser.release();
+            }
+            connection.release();
+        }
+    }
+
+    // Closes connections whose response has had no bytes accepted by the socket for writeTimeout. Runs until
+    // the server is closed and every connection is gone, so writes during a shutdown are covered too.
+    private void watchWrites(ServerSocketChannel server) {
+        long timeoutNanos = config.getWriteTimeout().toNanos();
+        try {
+            while (server.isOpen() || !connections.isEmpty()) {
+                Thread.sleep(WATCHDOG_INTERVAL_MILLIS);
+                long now = System.nanoTime();
+                for (OpenConnection open : connections) {
+                    long since = open.connection.writingSince();
+                    if (since == 0) {
+                        continue;
+                    }
+                    long progress = open.output.lastProgress;
+                    long lastActive = progress - since > 0 ? progress : since;
+                    if (now - lastActive > timeoutNanos) {
+                        closeQuietly(open.socket);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // already closing
+        }
+    }
+
+    private record OpenConnection(Socket socket, Connection connection, SocketOutput output, Thread thread) {
+    }
+
+    // Records when the socket last accepted bytes; the buffered stream above it writes in large pieces
+    private static final class SocketOutput extends OutputStream {
+        private final OutputStream output;
+        private volatile long lastProgress = System.nanoTime();
+
+        private SocketOutput(OutputStream output) {
+            this.output = output;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            output.write(b);
+            lastProgress = System.nanoTime();
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            output.write(bytes, offset, length);
+            lastProgress = System.nanoTime();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            output.flush();
+            lastProgress = System.nanoTime();
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+}
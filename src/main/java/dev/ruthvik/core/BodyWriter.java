@@ -0,0 +1,9 @@
+package dev.ruthvik.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+@FunctionalInterface
+public interface BodyWriter {
+    void writeTo(OutputStream body) throws IOException;
+}
@@ -0,0 +1,197 @@
+package dev.ruthvik.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Recycles the parser, response and socket buffers so steady traffic stops feeding the young generation.
+// Buffers come in power-of-two size classes from 4 KiB to 1 MiB, as heap arrays or direct ByteBuffers.
+// Platform threads (the NIO event loops) keep a few buffers per class in a thread-local cache; virtual
+// threads are too numerous and short-lived for that and go straight to the shared, bounded overflow.
+// Larger requests are allocated and dropped without pooling.
+public final class BufferPool {
+    private static final int MIN_SHIFT = 12;
+    private static final int MAX_SHIFT = 20;
+    private static final int CLASS_COUNT = MAX_SHIFT - MIN_SHIFT + 1;
+    private static final int LOCAL_BUFFERS_PER_CLASS = 4;
+    // Memory retained by the shared overflow for each size class, per buffer kind
+    private static final long SHARED_BYTES_PER_CLASS = 4L * 1024 * 1024;
+
+    private static final BufferPool SHARED = new BufferPool();
+
+    private final List<Shelf<byte[]>> heap = new ArrayList<>(CLASS_COUNT);
+    private final List<Shelf<ByteBuffer>> direct = new ArrayList<>(CLASS_COUNT);
+    private final ThreadLocal<LocalCache> localCaches = ThreadLocal.withInitial(LocalCache::new);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder outstanding = new LongAdder();
+
+    private BufferPool() {
+        for (int sizeClass = 0; sizeClass < CLASS_COUNT; sizeClass++) {
+            int capacity = (int) Math.max(4, SHARED_BYTES_PER_CLASS >> (sizeClass + MIN_SHIFT));
+            heap.add(new Shelf<>(capacity));
+            direct.add(new Shelf<>(capacity));
+        }
+    }
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    // Acquisitions served from a cache
+    public long getHits() {
+        return hits.sum();
+    }
+
+    // Acquisitions that had to allocate, including sizes too large to pool
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Pooled buffers handed out and not yet released
+    public long getOutstanding() {
+        return outstanding.sum();
+    }
+
+    // The returned array may be larger than requested
+    byte[] acquireArray(int minimumSize) {
+        int sizeClass = sizeClassFor(minimumSize);
+        if (sizeClass == -1) {
+            misses.increment();
+            return new byte[minimumSize];
+        }
+        LocalCache local = localCache();
+        byte[] array = local == null ? null : local.heap.get(sizeClass).pollFirst();
+        if (array == null) {
+            array = heap.get(sizeClass).poll();
+        }
+        if (array == null) {
+            misses.increment();
+            array = new byte[1 << (sizeClass + MIN_SHIFT)];
+        } else {
+            hits.increment();
+        }
+        outstanding.increment();
+        return array;
+    }
+
+    void release(byte[] array) {
+        int sizeClass = exactSizeClass(array.length);
+        if (sizeClass == -1) {
+            return;
+        }
+        outstanding.decrement();
+        LocalCache local = localCache();
+        if (local != null && local.heap.get(sizeClass).size() < LOCAL_BUFFERS_PER_CLASS) {
+            local.heap.get(sizeClass).addFirst(array);
+        } else {
+            heap.get(sizeClass).offer(array);
+        }
+    }
+
+    // Returned cleared, with a capacity of at least minimumSize
+    ByteBuffer acquireDirect(int minimumSize) {
+        int sizeClass = sizeClassFor(minimumSize);
+        if (sizeClass == -1) {
+            misses.increment();
+            return ByteBuffer.allocateDirect(minimumSize);
+        }
+        LocalCache local = localCache();
+        ByteBuffer buffer = local == null ? null : local.direct.get(sizeClass).pollFirst();
+        if (buffer == null) {
+            buffer = direct.get(sizeClass).poll();
+        }
+        if (buffer == null) {
+            misses.increment();
+            buffer = ByteBuffer.allocateDirect(1 << (sizeClass + MIN_SHIFT));
+        } else {
+            hits.increment();
+        }
+        outstanding.increment();
+        return buffer.clear();
+    }
+
+    void release(ByteBuffer buffer) {
+        int sizeClass = exactSizeClass(buffer.capacity());
+        if (!buffer.isDirect() || sizeClass == -1) {
+            return;
+        }
+        outstanding.decrement();
+        LocalCache local = localCache();
+        if (local != null && local.direct.get(sizeClass).size() < LOCAL_BUFFERS_PER_CLASS) {
+            local.direct.get(sizeClass).addFirst(buffer);
+        } else {
+            direct.get(sizeClass).offer(buffer);
+        }
+    }
+
+    private LocalCache localCache() {
+        return Thread.currentThread().isVirtual() ? null : localCaches.get();
+    }
+
+    private static int sizeClassFor(int size) {
+        if (size > 1 << MAX_SHIFT) {
+            return -1;
+        }
+        int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1));
+        return shift - MIN_SHIFT;
+    }
+
+    private static int exactSizeClass(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            return -1;
+        }
+        int shift = Integer.numberOfTrailingZeros(capacity);
+        return shift < MIN_SHIFT || shift > MAX_SHIFT ? -1 : shift - MIN_SHIFT;
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool(hits=" + getHits() + ", misses=" + getMisses() + ", outstanding=" + getOutstanding() + ")";
+    }
+
+    // Bounded lock-free queue of free buffers; releases beyond the capacity are left to the GC
+    private static final class Shelf<T> {
+        private final Queue<T> free = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final int capacity;
+
+        private Shelf(int capacity) {
+            this.capacity = capacity;
+        }
+
+        T poll() {
+            T item = free.poll();
+            if (item != null) {
+                size.decrementAndGet();
+            }
+            return item;
+        }
+
+        void offer(T item) {
+            if (size.incrementAndGet() > capacity) {
+                size.decrementAndGet();
+                return;
+            }
+            free.offer(item);
+        }
+    }
+
+    private static final class LocalCache {
+        private final List<ArrayDeque<byte[]>> heap = new ArrayList<>(CLASS_COUNT);
+        private final List<ArrayDeque<ByteBuffer>> direct = new ArrayList<>(CLASS_COUNT);
+
+        private LocalCache() {
+            for (int sizeClass = 0; sizeClass < CLASS_COUNT; sizeClass++) {
+                heap.add(new ArrayDeque<>(LOCAL_BUFFERS_PER_CLASS));
+                direct.add(new ArrayDeque<>(LOCAL_BUFFERS_PER_CLASS));
+            }
+        }
+    }
+}
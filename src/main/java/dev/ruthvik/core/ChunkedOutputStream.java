@@ -0,0 +1,84 @@
+package dev.ruthvik.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Frames everything written to it as HTTP/1.1 chunks. Small writes are coalesced into one chunk;
+// flush() emits what is buffered so streamed data reaches the client without waiting for close().
+class ChunkedOutputStream extends OutputStream {
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count;
+    private boolean finished;
+
+    ChunkedOutputStream(OutputStream out, int chunkSize) {
+        this.out = out;
+        this.buffer = new byte[chunkSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == buffer.length) {
+            writeBufferedChunk();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (len >= buffer.length) {
+            // Large writes go out as their own chunk without an extra copy
+            writeBufferedChunk();
+            writeChunk(b, off, len);
+            return;
+        }
+        if (len > buffer.length - count) {
+            writeBufferedChunk();
+        }
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writeBufferedChunk();
+        out.flush();
+    }
+
+    // Writes the terminating zero-length chunk; the underlying connection stays open
+    @Override
+    public void close() throws IOException {
+        if (finished) return;
+        writeBufferedChunk();
+        out.write(LAST_CHUNK);
+        finished = true;
+    }
+
+    private void writeBufferedChunk() throws IOException {
+        if (count > 0) {
+            writeChunk(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    private void writeChunk(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return;
+        out.write(Integer.toHexString(len).getBytes(StandardCharsets.ISO_8859_1));
+        out.write(CRLF);
+        out.write(b, off, len);
+        out.write(CRLF);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Chunked body already finished");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpStatus;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+// Compresses eligible responses right before they are written, with the best encoding the client accepts
+class Compression {
+    // Media that is already compressed gains nothing from another pass
+    private static final List<String> COMPRESSED_TYPES = List.of(
+            "image/", "video/", "audio/", "font/woff", "application/zip", "application/gzip",
+            "application/x-gzip", "application/x-bzip2", "application/x-xz", "application/x-7z-compressed",
+            "application/x-rar-compressed", "application/zstd", "application/wasm", "application/pdf",
+            "application/octet-stream");
+
+    private final List<ContentEncoder> encoders;
+    private final int minSize;
+    private final JsonCodec jsonCodec;
+
+    Compression(ServerConfig config) {
+        this.encoders = config.getContentEncoders();
+        this.minSize = config.getCompressionMinSize();
+        this.jsonCodec = config.getJsonCodec();
+    }
+
+    void apply(Request request, Response response) throws IOException {
+        if (!eligible(response)) {
+            return;
+        }
+        // The encoder wraps the serialized bytes, so JSON is rendered now; large documents still stream
+        response.renderJson(jsonCodec, Response.JSON_BUFFER_LIMIT);
+        if (!response.isStreaming() && response.bodyLength() < minSize) {
+            return;
+        }
+        // The representation now depends on Accept-Encoding whether or not this client gets it compressed
+        response.addVary(Header.ACCEPT_ENCODING.value());
+
+        ContentEncoder selected = negotiate(request);
+        if (selected != null) {
+            response.encodeBody(selected);
+        }
+    }
+
+    // Whether apply encodes this in-memory response for clients that accept an encoding; it isn't modified
+    boolean compresses(Response response) {
+        return eligible(response) && !response.isStreaming() && !response.hasPendingJson()
+                && response.bodyLength() >= minSize;
+    }
+
+    // The encoder apply picks for this request's Accept-Encoding, null when it accepts none of them
+    ContentEncoder negotiate(Request request) {
+        String acceptEncoding = request.getHeader(Header.ACCEPT_ENCODING).orElse(null);
+        if (acceptEncoding == null) {
+            return null;
+        }
+        ContentEncoder selected = null;
+        double selectedQuality = 0;
+        // Server preference order breaks ties
+        for (ContentEncoder encoder : encoders) {
+            double quality = quality(acceptEncoding, encoder.name());
+            if (quality > selectedQuality) {
+                selected = encoder;
+                selectedQuality = quality;
+            }
+        }
+        return selected;
+    }
+
+    private static boolean eligible(Response response) {
+        if (response.getHeader(Header.CONTENT_ENCODING).isPresent()
+                || response.getStatus() == HttpStatus.PARTIAL_CONTENT
+                || !response.hasBody()
+                || response.hasFileBody()) {
+            return false;
+        }
+        String contentType = response.getHeader(Header.CONTENT_TYPE).orElse(null);
+        return contentType != null && !isCompressed(contentType);
+    }
+
+    // q-value the Accept-Encoding header gives coding, falling back to "*"; 0 when not acceptable
+    static double quality(String acceptEncoding, String coding) {
+        double wildcard = 0;
+        for (String element : acceptEncoding.split(",")) {
+            int semicolon = element.indexOf(';');
+            String token = (semicolon == -1 ? element : element.substring(0, semicolon)).trim();
+            double quality = semicolon == -1 ? 1 : parseQuality(element.substring(semicolon + 1));
+            if (token.equalsIgnoreCase(coding)) {
+                return quality;
+            }
+            if (token.equals("*")) {
+                wildcard = quality;
+            }
+        }
+        return wildcard;
+    }
+
+    private static double parseQuality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=") || trimmed.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static boolean isCompressed(String contentType) {
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("image/svg+xml")) {
+            return false;
+        }
+        for (String prefix : COMPRESSED_TYPES) {
+            if (type.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
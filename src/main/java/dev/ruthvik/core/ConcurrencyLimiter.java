@@ -0,0 +1,129 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpStatus;
+import dev.ruthvik.exception.RequestException;
+import lombok.Builder;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Adaptive cap on the requests being handled at once, attached like any other middleware:
+//
+//     server.addGlobalMiddleware(ConcurrencyLimiter.builder().maxLimit(500).build());
+//
+// Requests over the limit are answered straight away with 503 and a Retry-After instead of queueing behind
+// the ones in flight, so overload shows up as fast rejections rather than climbing latency. The limit adapts
+// AIMD-style to handler latency: a short moving average of it is compared with a baseline, the lowest average
+// seen over the last window of samples. While the two stay within tolerance and the limit is in use, it grows
+// by about one per limit's worth of requests; once latency rises past that the limit is cut by backoffRatio,
+// at most once per averaging window so the average can catch up with the smaller limit. Latency that stays
+// high for a whole baseline window, even at the lower limit, becomes the new baseline.
+public class ConcurrencyLimiter implements AroundMiddleware {
+    // Samples in the short average, and samples after which the baseline moves to the last window's minimum
+    private static final int SHORT_WINDOW = 10;
+    private static final int BASELINE_WINDOW = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final String retryAfter;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Latency state, updated by whichever completing request gets the lock; samples that find it held are
+    // dropped, which the averages don't miss
+    private final ReentrantLock lock = new ReentrantLock();
+    private double currentLimit;
+    private double shortNanos;
+    private double baselineNanos;
+    private double windowMinNanos;
+    private int windowSamples;
+    private int samplesSinceBackoff;
+
+    @Builder
+    private ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoffRatio,
+                               Duration retryAfter) {
+        this.minLimit = minLimit > 0 ? minLimit : 4;
+        this.maxLimit = Math.max(this.minLimit, maxLimit > 0 ? maxLimit : 1000);
+        this.tolerance = tolerance > 1 ? tolerance : 2.0;
+        this.backoffRatio = backoffRatio > 0 && backoffRatio < 1 ? backoffRatio : 0.9;
+        Duration retryDelay = retryAfter != null ? retryAfter : Duration.ofSeconds(1);
+        this.retryAfter = String.valueOf(Math.max(1, retryDelay.toSeconds()));
+        this.currentLimit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit > 0 ? initialLimit : 20));
+        this.limit = (int) currentLimit;
+    }
+
+    @Override
+    public Response handle(Request request, Handler next) throws RequestException {
+        int running;
+        do {
+            running = inFlight.get();
+            if (running >= limit) {
+                return serviceUnavailable();
+            }
+        } while (!inFlight.compareAndSet(running, running + 1));
+
+        long start = System.nanoTime();
+        try {
+            return next.handle(request);
+        } finally {
+            inFlight.decrementAndGet();
+            sample(System.nanoTime() - start, running + 1);
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void sample(long nanos, int running) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            if (baselineNanos == 0) {
+                shortNanos = nanos;
+                baselineNanos = nanos;
+                windowMinNanos = nanos;
+                return;
+            }
+            shortNanos += (nanos - shortNanos) / SHORT_WINDOW;
+            windowMinNanos = Math.min(windowMinNanos, shortNanos);
+            baselineNanos = Math.min(baselineNanos, shortNanos);
+            if (++windowSamples == BASELINE_WINDOW) {
+                baselineNanos = windowMinNanos;
+                windowMinNanos = shortNanos;
+                windowSamples = 0;
+            }
+            samplesSinceBackoff++;
+
+            if (shortNanos > tolerance * baselineNanos) {
+                if (samplesSinceBackoff >= SHORT_WINDOW) {
+                    currentLimit = Math.max(minLimit, currentLimit * backoffRatio);
+                    samplesSinceBackoff = 0;
+                }
+            } else if (running * 2 >= currentLimit) {
+                // Only grow a limit that is being used, so a quiet period doesn't leave it arbitrarily high
+                currentLimit = Math.min(maxLimit, currentLimit + 1 / currentLimit);
+            }
+            limit = (int) currentLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Response serviceUnavailable() {
+        Response response = new Response();
+        response.setHeader(Header.RETRY_AFTER, retryAfter);
+        response.setText("Server is at capacity, retry later", HttpStatus.SERVICE_UNAVAILABLE);
+        return response;
+    }
+}
@@ -0,0 +1,267 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpMethod;
+import dev.ruthvik.enums.HttpStatus;
+import dev.ruthvik.exception.RequestException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// HTTP/1.1 exchange logic for one client connection, independent of how its bytes are moved: the blocking
+// engine feeds it the socket's streams, the NIO engine feeds it requests that have already fully arrived
+class Connection {
+    // Unread body left behind by a handler is skipped up to this size; beyond it closing is cheaper
+    private static final long MAX_DISCARDED_BODY = 64 * 1024;
+    // Between requests, handling one, or claimed by a shutdown that is closing it
+    private static final int IDLE = 0;
+    private static final int BUSY = 1;
+    private static final int CLOSING = 2;
+
+    private final Router router;
+    private final ServerConfig config;
+    private final ServerMetrics metrics;
+    // Response heads are serialized into this one buffer for the lifetime of the connection
+    private final ResponseHeadWriter head = new ResponseHeadWriter();
+    private final Compression compression;
+    private int served;
+    // The request being handled, so a disconnect reported by the engine can cancel async work
+    private volatile Request inFlight;
+    private volatile boolean disconnected;
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+    // Set by a shutdown: the response being written is the last one on this connection
+    private volatile boolean draining;
+    // When the response being written started going out, 0 otherwise; watched for ServerConfig.writeTimeout
+    private volatile long writingSince;
+    // Handed to every request; null when the engine couldn't tell
+    private InetSocketAddress remoteAddress;
+
+    Connection(Router router, ServerConfig config, ServerMetrics metrics) {
+        this.router = router;
+        this.config = config;
+        this.metrics = metrics;
+        this.compression = config.isCompression() ? new Compression(config) : null;
+        metrics.connectionOpened();
+    }
+
+    // Returns pooled buffers; called exactly once, when no more responses will be written
+    void release() {
+        head.release();
+        metrics.connectionClosed();
+    }
+
+    // Called by an engine that notices the client is gone while requests are still being handled
+    void clientDisconnected() {
+        disconnected = true;
+        Request request = inFlight;
+        if (request != null) {
+            request.markDisconnected();
+        }
+    }
+
+    // Called on shutdown: the current response goes out with "Connection: close" and no further request is read
+    void drain() {
+        draining = true;
+    }
+
+    // Claims a connection that is waiting for its next request so a shutdown can close it; false while a request
+    // is being handled. Call drain() first, so a connection that just finished its request stops on its own.
+    boolean claimIdle() {
+        return state.compareAndSet(IDLE, CLOSING);
+    }
+
+    // Set by the engine before the first request is served
+    void setRemoteAddress(InetSocketAddress remoteAddress) {
+        this.remoteAddress = remoteAddress;
+    }
+
+    long writingSince() {
+        return writingSince;
+    }
+
+    // Answers a request that can't be served (malformed, too slow, over a limit) and ends the connection
+    void reject(RequestException e, OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        writingSince = start;
+        try {
+            Response response = errorResponse(e.getMessage(), e.getStatus());
+            response.setHeader(Header.CONNECTION, "close");
+            long sent = response.sendOutput(output, null, head, config.getJsonCodec());
+            output.flush();
+            metrics.record(null, e.getStatus(), System.nanoTime() - start, sent);
+        } finally {
+            writingSince = 0;
+        }
+    }
+
+    // Answers requests until the input is exhausted. Returns false once the connection has to be closed,
+    // true when it ended cleanly between requests and may carry more.
+    boolean serve(RequestParser parser, OutputStream output, WritableByteChannel channel) throws IOException {
+        // Received bytes are reported after every exchange so long-lived connections show up as they go
+        long bytesCounted = parser.bytesRead();
+        try {
+            while (true) {
+                Request request;
+                try {
+                    request = parser.parse();
+                } catch (RequestException e) {
+                    // The stream position is unknown after a malformed request, so the connection can't be reused
+                    reject(e, output);
+                    return false;
+                }
+                if (request == null) {
+                    return true;
+                }
+                // Still BUSY when the request was already buffered behind the previous one
+                if (state.get() != BUSY && !state.compareAndSet(IDLE, BUSY)) {
+                    // A shutdown closed the connection while this request was arriving
+                    request.cleanup();
+                    return false;
+                }
+
+                served++;
+                request.setRemoteAddress(remoteAddress);
+                request.setCompression(compression);
+                if (channel instanceof SocketChannel socket) {
+                    Request current = request;
+                    current.setConnectionProbe(() -> probe(parser, socket, current));
+                }
+                inFlight = request;
+                if (disconnected) {
+                    request.markDisconnected();
+                }
+                boolean keepAlive;
+                try {
+                    keepAlive = respond(request, output, channel);
+                } finally {
+                    inFlight = null;
+                    request.cleanup();
+                }
+                // Answer pipelined requests back to back and flush once the client stops sending
+                boolean pipelined = parser.hasPendingInput();
+                if (!keepAlive || !pipelined) {
+                    output.flush();
+                }
+                writingSince = 0;
+                if (!keepAlive) {
+                    return false;
+                }
+                if (!pipelined) {
+                    // Checked after going idle: either this sees the drain or the shutdown's claimIdle sees IDLE
+                    state.set(IDLE);
+                    if (draining) {
+                        return false;
+                    }
+                }
+                metrics.bytesReceived(parser.bytesRead() - bytesCounted);
+                bytesCounted = parser.bytesRead();
+            }
+        } finally {
+            writingSince = 0;
+            metrics.bytesReceived(parser.bytesRead() - bytesCounted);
+        }
+    }
+
+    private boolean respond(Request request, OutputStream output, WritableByteChannel channel) throws IOException {
+        long start = System.nanoTime();
+        Response response = dispatch(request);
+        boolean http10 = "HTTP/1.0".equals(request.getVersion());
+        try {
+            if (http10) {
+                // Chunked encoding is HTTP/1.1 only, so a large JSON body becomes a close-delimited stream
+                response.renderJson(config.getJsonCodec(), Response.JSON_BUFFER_LIMIT);
+            }
+            if (compression != null) {
+                compression.apply(request, response);
+            }
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            response = errorResponse("Internal Server Error", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        if (http10 && response.isStreaming()) {
+            response.useCloseDelimitedBody();
+        }
+        boolean keepAlive = config.isKeepAlive()
+                && request.discardUnreadBody(MAX_DISCARDED_BODY)
+                && !(http10 && response.isStreaming())
+                && !draining
+                && served < config.getMaxRequestsPerConnection()
+                && clientWantsKeepAlive(request)
+                && !response.getHeader(Header.CONNECTION).map(v -> hasToken(v, "close")).orElse(false);
+        if (!keepAlive) {
+            response.setHeader(Header.CONNECTION, "close");
+        } else if (http10) {
+            response.setHeader(Header.CONNECTION, "keep-alive");
+        }
+        if (HttpMethod.HEAD.name().equals(request.getMethod())) {
+            response.omitBody();
+        }
+        write(request, response, output, channel, start);
+        return keepAlive;
+    }
+
+    private Response dispatch(Request request) {
+        try {
+            return router.match(request);
+        } catch (RequestException e) {
+            return errorResponse(e.getMessage(), e.getStatus());
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            return errorResponse("Internal Server Error", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Latency runs from dispatch until the response has been handed to the output; a pipelined response
+    // still sitting in the output buffer counts as written
+    private void write(Request request, Response response, OutputStream output, WritableByteChannel channel,
+                       long start) throws IOException {
+        HttpStatus status = response.getStatus();
+        long sent;
+        writingSince = System.nanoTime();
+        try {
+            sent = response.sendOutput(output, channel, head, config.getJsonCodec());
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+            sent = errorResponse("Internal Server Error", status).sendOutput(output, null, head, config.getJsonCodec());
+        }
+        metrics.record(request.getRoutePattern(), status, System.nanoTime() - start, sent);
+    }
+
+    private static void probe(RequestParser parser, SocketChannel socket, Request request) {
+        try {
+            if (parser.peerClosed(socket)) {
+                request.markDisconnected();
+            }
+        } catch (IOException e) {
+            request.markDisconnected();
+        }
+    }
+
+    private static Response errorResponse(String message, HttpStatus status) {
+        Response response = new Response();
+        response.setText(message, status);
+        return response;
+    }
+
+    private static boolean clientWantsKeepAlive(Request request) {
+        String connection = String.join(",", request.getHeaders(Header.CONNECTION));
+        if ("HTTP/1.0".equals(request.getVersion())) {
+            return hasToken(connection, "keep-alive");
+        }
+        return !hasToken(connection, "close");
+    }
+
+    private static boolean hasToken(String headerValue, String token) {
+        for (String part : headerValue.split(",")) {
+            if (part.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,14 @@
+package dev.ruthvik.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// A Content-Encoding the server can apply to response bodies, e.g. a Brotli binding registered through
+// ServerConfig.contentEncoders. gzip and deflate are built in (DeflateEncoder).
+public interface ContentEncoder {
+    // Token used in Accept-Encoding and Content-Encoding, e.g. "br"
+    String name();
+
+    // Closing the returned stream must finish the encoding without closing body
+    OutputStream encode(OutputStream body) throws IOException;
+}
@@ -12,7 +12,7 @@ import java.util.Locale;
 @Getter
 public class Cookie {
 
-    private final List<String> sameSiteOptions = List.of("lax", "strict", "none");
+    private static final List<String> SAME_SITE_OPTIONS = List.of("lax", "strict", "none");
 
     private final String name;
     private final String value;
@@ -45,8 +45,9 @@ public class Cookie {
             throw new IllegalArgumentException("Cookie maxAge must be -1 or a positive number");
         }
 
-        if (!sameSiteOptions.contains(sameSite.toLowerCase(Locale.ROOT))) {
-            throw new IllegalArgumentException("Cookie same site must be either of these values" + sameSiteOptions);
+        // Unset means the browser default applies; request cookies never carry one
+        if (sameSite != null && !SAME_SITE_OPTIONS.contains(sameSite.toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("Cookie same site must be either of these values" + SAME_SITE_OPTIONS);
         }
 
         this.name = name;
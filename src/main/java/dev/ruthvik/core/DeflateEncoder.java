@@ -0,0 +1,115 @@
+package dev.ruthvik.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+// gzip (RFC 1952) and deflate (zlib, RFC 1950) on top of java.util.zip. Deflaters hold native zlib state
+// that is expensive to create, so they are recycled through a small shared pool: per-thread caching would
+// be wasted on virtual threads, which never run a second request.
+public final class DeflateEncoder implements ContentEncoder {
+    public static final DeflateEncoder GZIP = new DeflateEncoder("gzip", true, Deflater.DEFAULT_COMPRESSION);
+    public static final DeflateEncoder DEFLATE = new DeflateEncoder("deflate", false, Deflater.DEFAULT_COMPRESSION);
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_POOLED_DEFLATERS = 64;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final String name;
+    private final boolean gzip;
+    private final int level;
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private DeflateEncoder(String name, boolean gzip, int level) {
+        this.name = name;
+        this.gzip = gzip;
+        this.level = level;
+    }
+
+    // Same format with a different zlib level (0-9); the new encoder has its own Deflater pool
+    public DeflateEncoder withLevel(int level) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9");
+        }
+        return new DeflateEncoder(name, gzip, level);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public OutputStream encode(OutputStream body) throws IOException {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            // gzip frames a raw deflate stream itself, deflate keeps the zlib wrapper
+            deflater = new Deflater(level, gzip);
+        } else {
+            pooled.decrementAndGet();
+        }
+        if (gzip) {
+            body.write(GZIP_HEADER);
+        }
+        return new EncodingStream(body, deflater);
+    }
+
+    private void recycle(Deflater deflater) {
+        deflater.reset();
+        if (pooled.incrementAndGet() > MAX_POOLED_DEFLATERS) {
+            pooled.decrementAndGet();
+            deflater.end();
+            return;
+        }
+        deflaters.offer(deflater);
+    }
+
+    private final class EncodingStream extends DeflaterOutputStream {
+        private final CRC32 crc = new CRC32();
+        private boolean closed;
+
+        private EncodingStream(OutputStream body, Deflater deflater) {
+            // syncFlush so flush() pushes out everything compressed so far, keeping streamed chunks timely
+            super(body, deflater, BUFFER_SIZE, true);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            if (gzip) {
+                crc.update(b, off, len);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                finish();
+                if (gzip) {
+                    writeIntLE(crc.getValue());
+                    writeIntLE(def.getBytesRead());
+                }
+                out.flush();
+            } finally {
+                recycle(def);
+            }
+        }
+
+        private void writeIntLE(long value) throws IOException {
+            out.write((int) value & 0xff);
+            out.write((int) (value >> 8) & 0xff);
+            out.write((int) (value >> 16) & 0xff);
+            out.write((int) (value >> 24) & 0xff);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package dev.ruthvik.core;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.Strictness;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Default JsonCodec. Type adapters are resolved once per class, so each call goes straight to the adapter
+// without building a TypeToken; output matches gson.toJson and gson.fromJson for the same Gson instance.
+public final class GsonCodec implements JsonCodec {
+    private final Gson gson;
+    private final ClassValue<TypeAdapter<?>> classAdapters = new ClassValue<>() {
+        @Override
+        protected TypeAdapter<?> computeValue(Class<?> type) {
+            return gson.getAdapter(type);
+        }
+    };
+    // Parameterized types such as List<User>
+    private final Map<Type, TypeAdapter<?>> typeAdapters = new ConcurrentHashMap<>();
+
+    public GsonCodec() {
+        this(new Gson());
+    }
+
+    public GsonCodec(Gson gson) {
+        this.gson = gson;
+    }
+
+    @Override
+    public void write(Object value, OutputStream out) throws IOException {
+        Utf8Writer writer = new Utf8Writer(out);
+        try {
+            write(value, gson.newJsonWriter(writer));
+        } finally {
+            writer.release();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(Object value, JsonWriter json) throws IOException {
+        // Like gson.toJson, accept top-level values of any kind
+        if (json.getStrictness() == Strictness.LEGACY_STRICT) {
+            json.setStrictness(Strictness.LENIENT);
+        }
+        try {
+            if (value == null) {
+                json.nullValue();
+            } else {
+                ((TypeAdapter<Object>) classAdapters.get(value.getClass())).write(json, value);
+            }
+        } catch (JsonParseException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        json.flush();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T read(InputStream in, Type type) throws IOException {
+        JsonReader json = gson.newJsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        if (json.getStrictness() == Strictness.LEGACY_STRICT) {
+            json.setStrictness(Strictness.LENIENT);
+        }
+        try {
+            try {
+                json.peek();
+            } catch (EOFException e) {
+                // An empty body reads as null, as with gson.fromJson
+                return null;
+            }
+            T value = (T) adapter(type).read(json);
+            if (json.peek() != JsonToken.END_DOCUMENT) {
+                throw new IOException("JSON document was not fully consumed");
+            }
+            return value;
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private TypeAdapter<?> adapter(Type type) {
+        if (type instanceof Class<?> clazz) {
+            return classAdapters.get(clazz);
+        }
+        return typeAdapters.computeIfAbsent(type, t -> gson.getAdapter(TypeToken.get(t)));
+    }
+
+    // JsonWriter emits many tiny strings; OutputStreamWriter locks and runs a CharsetEncoder for each one,
+    // while this encodes UTF-8 by hand into a pooled buffer
+    private static final class Utf8Writer extends Writer {
+        private static final int BUFFER_SIZE = 8192;
+
+        private final OutputStream out;
+        private byte[] buffer = BufferPool.shared().acquireArray(BUFFER_SIZE);
+        private int count;
+        private char highSurrogate;
+
+        private Utf8Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            encode((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                encode(chars[i]);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                char c = str.charAt(i);
+                if (c < 0x80 && highSurrogate == 0) {
+                    if (count == buffer.length) {
+                        drain();
+                    }
+                    buffer[count++] = (byte) c;
+                } else {
+                    encode(c);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        void release() {
+            if (buffer != null) {
+                BufferPool.shared().release(buffer);
+                buffer = null;
+            }
+        }
+
+        private void encode(char c) throws IOException {
+            if (count + 4 > buffer.length) {
+                drain();
+            }
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                    return;
+                }
+                // Unpaired surrogate, replaced like String.getBytes does
+                buffer[count++] = '?';
+                encode(c);
+                return;
+            }
+            if (c < 0x80) {
+                buffer[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                buffer[count++] = '?';
+            } else {
+                buffer[count++] = (byte) (0xE0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        private void drain() throws IOException {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+    }
+}
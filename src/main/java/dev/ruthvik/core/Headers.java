@@ -0,0 +1,394 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+// Header fields of a request or response. Names are case-insensitive: a Header constant lives in the slot
+// for its ordinal, so the common lookups are an array read, and any other name goes into an open-addressed
+// table hashed without lowercasing it. Repeated fields keep every value in arrival order (Set-Cookie, or the
+// split Cookie headers some proxies send); get() returns the first one.
+public final class Headers {
+    private static final Header[] KNOWN = Header.values();
+    // Known names by case-insensitive hash, so the parser can resolve one straight from the request bytes
+    private static final Header[] KNOWN_TABLE = new Header[256];
+    private static final int INITIAL_TABLE_SIZE = 16;
+
+    static {
+        for (Header header : KNOWN) {
+            String name = header.value();
+            int slot = hash(name) & (KNOWN_TABLE.length - 1);
+            while (KNOWN_TABLE[slot] != null) {
+                slot = (slot + 1) & (KNOWN_TABLE.length - 1);
+            }
+            KNOWN_TABLE[slot] = header;
+        }
+    }
+
+    // A String, or a List<String> once the field has been repeated
+    private final Object[] known = new Object[KNOWN.length];
+    private int knownCount;
+
+    // Other names in insertion order (removed ones are null), indexed by an open-addressed table of
+    // entry index + 1 with linear probing
+    private String[] names = new String[0];
+    private Object[] values = new Object[0];
+    private int entries;
+    private int[] table;
+    private int otherCount;
+
+    public Headers() {
+    }
+
+    // Resolves a header name to its constant, case-insensitively; null for names without one
+    public static Header known(String name) {
+        int slot = hash(name) & (KNOWN_TABLE.length - 1);
+        Header header;
+        while ((header = KNOWN_TABLE[slot]) != null) {
+            if (header.value().equalsIgnoreCase(name)) {
+                return header;
+            }
+            slot = (slot + 1) & (KNOWN_TABLE.length - 1);
+        }
+        return null;
+    }
+
+    // Same as known(String) for a Latin-1 name in bytes[from, to), without decoding it
+    static Header known(byte[] bytes, int from, int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + lower(bytes[i] & 0xFF);
+        }
+        int slot = spread(hash) & (KNOWN_TABLE.length - 1);
+        Header header;
+        while ((header = KNOWN_TABLE[slot]) != null) {
+            if (matches(header.value(), bytes, from, to)) {
+                return header;
+            }
+            slot = (slot + 1) & (KNOWN_TABLE.length - 1);
+        }
+        return null;
+    }
+
+    public boolean contains(Header header) {
+        return known[header.ordinal()] != null;
+    }
+
+    public boolean contains(String name) {
+        Header header = known(name);
+        return header != null ? contains(header) : find(name) != -1;
+    }
+
+    // First value of the field, or null
+    public String get(Header header) {
+        return first(known[header.ordinal()]);
+    }
+
+    public String get(String name) {
+        Header header = known(name);
+        if (header != null) {
+            return get(header);
+        }
+        int entry = find(name);
+        return entry == -1 ? null : first(values[entry]);
+    }
+
+    // Every value of the field in arrival order; empty when absent
+    public List<String> getAll(Header header) {
+        return all(known[header.ordinal()]);
+    }
+
+    public List<String> getAll(String name) {
+        Header header = known(name);
+        if (header != null) {
+            return getAll(header);
+        }
+        int entry = find(name);
+        return entry == -1 ? List.of() : all(values[entry]);
+    }
+
+    // Replaces every value of the field
+    public void set(Header header, String value) {
+        if (known[header.ordinal()] == null) {
+            knownCount++;
+        }
+        known[header.ordinal()] = value;
+    }
+
+    public void set(String name, String value) {
+        Header header = known(name);
+        if (header != null) {
+            set(header, value);
+            return;
+        }
+        int entry = find(name);
+        if (entry == -1) {
+            insert(name, value);
+        } else {
+            values[entry] = value;
+        }
+    }
+
+    // Adds a value after any the field already has
+    public void add(Header header, String value) {
+        Object current = known[header.ordinal()];
+        if (current == null) {
+            knownCount++;
+        }
+        known[header.ordinal()] = append(current, value);
+    }
+
+    public void add(String name, String value) {
+        Header header = known(name);
+        if (header != null) {
+            add(header, value);
+            return;
+        }
+        int entry = find(name);
+        if (entry == -1) {
+            insert(name, value);
+        } else {
+            values[entry] = append(values[entry], value);
+        }
+    }
+
+    public void remove(Header header) {
+        if (known[header.ordinal()] != null) {
+            knownCount--;
+            known[header.ordinal()] = null;
+        }
+    }
+
+    public void remove(String name) {
+        Header header = known(name);
+        if (header != null) {
+            remove(header);
+            return;
+        }
+        int slot = findSlot(name);
+        if (slot == -1) {
+            return;
+        }
+        int entry = table[slot] - 1;
+        names[entry] = null;
+        values[entry] = null;
+        otherCount--;
+        deleteSlot(slot);
+    }
+
+    // Number of distinct fields
+    public int size() {
+        return knownCount + otherCount;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Every value of every field, known names first in Header order, then the others in insertion order
+    public void forEach(BiConsumer<String, String> action) {
+        forEachKnown((header, value) -> action.accept(header.value(), value));
+        forEachOther(action);
+    }
+
+    void forEachKnown(BiConsumer<Header, String> action) {
+        if (knownCount == 0) {
+            return;
+        }
+        for (int i = 0; i < known.length; i++) {
+            Object value = known[i];
+            if (value instanceof String single) {
+                action.accept(KNOWN[i], single);
+            } else if (value != null) {
+                for (String each : all(value)) {
+                    action.accept(KNOWN[i], each);
+                }
+            }
+        }
+    }
+
+    void forEachOther(BiConsumer<String, String> action) {
+        for (int i = 0; i < entries; i++) {
+            if (names[i] == null) {
+                continue;
+            }
+            if (values[i] instanceof String single) {
+                action.accept(names[i], single);
+            } else {
+                for (String each : all(values[i])) {
+                    action.accept(names[i], each);
+                }
+            }
+        }
+    }
+
+    void putAll(Headers other) {
+        other.forEachKnown(this::add);
+        other.forEachOther(this::add);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("{");
+        forEach((name, value) -> {
+            if (out.length() > 1) {
+                out.append(", ");
+            }
+            out.append(name).append('=').append(value);
+        });
+        return out.append('}').toString();
+    }
+
+    private void insert(String name, String value) {
+        if (table == null) {
+            table = new int[INITIAL_TABLE_SIZE];
+        } else if ((otherCount + 1) * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        if (entries == names.length) {
+            if (otherCount < entries / 2) {
+                // Mostly removed entries: compact instead of growing
+                rehash(table.length);
+            } else {
+                int capacity = Math.max(4, entries * 2);
+                names = Arrays.copyOf(names, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+        names[entries] = name;
+        values[entries] = value;
+        entries++;
+        otherCount++;
+        int slot = hash(name) & (table.length - 1);
+        while (table[slot] != 0) {
+            slot = (slot + 1) & (table.length - 1);
+        }
+        table[slot] = entries;
+    }
+
+    // Rebuilds the table at the given size, compacting out removed entries
+    private void rehash(int size) {
+        int live = 0;
+        for (int i = 0; i < entries; i++) {
+            if (names[i] != null) {
+                names[live] = names[i];
+                values[live] = values[i];
+                live++;
+            }
+        }
+        Arrays.fill(names, live, entries, null);
+        Arrays.fill(values, live, entries, null);
+        entries = live;
+        table = new int[size];
+        for (int i = 0; i < entries; i++) {
+            int slot = hash(names[i]) & (size - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (size - 1);
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    private int find(String name) {
+        int slot = findSlot(name);
+        return slot == -1 ? -1 : table[slot] - 1;
+    }
+
+    private int findSlot(String name) {
+        if (table == null || otherCount == 0) {
+            return -1;
+        }
+        int slot = hash(name) & (table.length - 1);
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (names[entry - 1].equalsIgnoreCase(name)) {
+                return slot;
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+        return -1;
+    }
+
+    // Backward-shift deletion keeps every remaining entry reachable from its home slot without tombstones
+    private void deleteSlot(int slot) {
+        int mask = table.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table[next] != 0) {
+            int home = hash(names[table[next] - 1]) & mask;
+            // Move the entry into the hole unless its home lies cyclically in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String first(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        return ((List<String>) value).get(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> all(Object value) {
+        if (value == null) {
+            return List.of();
+        }
+        if (value instanceof String single) {
+            return List.of(single);
+        }
+        return Collections.unmodifiableList((List<String>) value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object append(Object current, String value) {
+        if (current == null) {
+            return value;
+        }
+        if (current instanceof String single) {
+            List<String> list = new ArrayList<>(2);
+            list.add(single);
+            list.add(value);
+            return list;
+        }
+        ((List<String>) current).add(value);
+        return current;
+    }
+
+    private static int hash(String name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            hash = 31 * hash + lower(name.charAt(i));
+        }
+        return spread(hash);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int lower(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static boolean matches(String name, byte[] bytes, int from, int to) {
+        if (name.length() != to - from) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (lower(name.charAt(i)) != lower(bytes[from + i] & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,57 +1,110 @@
 package dev.ruthvik.core;
 
+import dev.ruthvik.enums.Header;
 import dev.ruthvik.enums.HttpMethod;
 import dev.ruthvik.enums.HttpStatus;
-import dev.ruthvik.exception.RequestException;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 
 public class HttpServer {
     private final int port;
+    private final ServerConfig config;
     private final Router router;
-    private final List<Middleware> pendingMiddlewares = new ArrayList<>();
+    private final ServerEngine engine;
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final List<AroundMiddleware> pendingMiddlewares = new ArrayList<>();
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private ShutdownReport shutdownReport;
 
     public HttpServer(int port) {
+        this(port, ServerConfig.defaults());
+    }
+
+    public HttpServer(int port, ServerConfig config) {
+        if (config.getMaxConnections() < 1) {
+            throw new IllegalArgumentException("maxConnections must be at least 1");
+        }
+        if (config.getMaxRequestsPerConnection() < 1) {
+            throw new IllegalArgumentException("maxRequestsPerConnection must be at least 1");
+        }
+        if (config.getMaxRequestLineSize() < 16 || config.getMaxHeaderSize() < 16) {
+            throw new IllegalArgumentException("maxRequestLineSize and maxHeaderSize must be at least 16 bytes");
+        }
+        if (config.getEventLoops() < 1) {
+            throw new IllegalArgumentException("eventLoops must be at least 1");
+        }
+        if (config.getBacklog() < 1) {
+            throw new IllegalArgumentException("backlog must be at least 1");
+        }
+        if (config.getAsyncTimeout().isNegative() || config.getAsyncTimeout().isZero()) {
+            throw new IllegalArgumentException("asyncTimeout must be positive");
+        }
+        for (Duration timeout : List.of(config.getIdleTimeout(), config.getHeaderReadTimeout(),
+                config.getWriteTimeout())) {
+            if (timeout.isNegative() || timeout.isZero()) {
+                throw new IllegalArgumentException("idleTimeout, headerReadTimeout and writeTimeout must be positive");
+            }
+        }
+        if (config.getMinBodyRate() < 0 || config.getBodyRateGracePeriod().isNegative()) {
+            throw new IllegalArgumentException("minBodyRate and bodyRateGracePeriod must not be negative");
+        }
+        if (config.getMaxHeaderCount() < 1) {
+            throw new IllegalArgumentException("maxHeaderCount must be at least 1");
+        }
+        if (config.getMaxConnectionsPerAddress() < 0) {
+            throw new IllegalArgumentException("maxConnectionsPerAddress must not be negative");
+        }
         this.port = port;
+        this.config = config;
         this.router = new Router();
+        this.engine = switch (config.getEngine()) {
+            case BLOCKING -> new BlockingEngine(router, config, metrics);
+            case NIO -> new NioEngine(router, config, metrics);
+        };
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
     }
 
     public final void addGlobalMiddleware(Middleware middleware) {
-        router.addGlobalMiddleware(middleware);
+        router.addGlobalMiddleware(AroundMiddleware.of(middleware));
     }
 
     public final void addGlobalMiddleware(SimpleMiddleware middleware) {
-        router.addGlobalMiddleware(req -> {
-            middleware.handle(req);
-            return Optional.empty();
-        });
+        router.addGlobalMiddleware(AroundMiddleware.wrapping(middleware));
+    }
+
+    public final void addGlobalMiddleware(AroundMiddleware middleware) {
+        router.addGlobalMiddleware(middleware);
     }
 
-    private HttpServer addMiddlewares(Middleware... middlewares) {
+    private HttpServer addMiddlewares(AroundMiddleware... middlewares) {
         pendingMiddlewares.addAll(Arrays.asList(middlewares));
         return this;
     }
 
     public HttpServer addMiddleware(Middleware... middlewares) {
-        return addMiddlewares(middlewares);
+        return addMiddlewares(Arrays.stream(middlewares).map(AroundMiddleware::of).toArray(AroundMiddleware[]::new));
     }
 
     public HttpServer addMiddleware(SimpleMiddleware... middlewares) {
-        Middleware[] converted = Arrays.stream(middlewares)
-                .map(simpleMiddleware -> (Middleware) req -> {
-                    simpleMiddleware.handle(req);
-                    return Optional.empty();
-                })
-                .toArray(Middleware[]::new);
-        return addMiddlewares(converted);
+        return addMiddlewares(Arrays.stream(middlewares).map(AroundMiddleware::wrapping).toArray(AroundMiddleware[]::new));
+    }
+
+    public HttpServer addMiddleware(AroundMiddleware... middlewares) {
+        return addMiddlewares(middlewares);
     }
 
     public final void add(HttpMethod method, String url, Handler handler) {
@@ -79,38 +132,142 @@ public class HttpServer {
         pendingMiddlewares.clear();
     }
 
+    public final void patch(String url, Handler handler) {
+        router.add(HttpMethod.PATCH, url, new ArrayList<>(pendingMiddlewares), handler);
+        pendingMiddlewares.clear();
+    }
+
+    public final void head(String url, Handler handler) {
+        router.add(HttpMethod.HEAD, url, new ArrayList<>(pendingMiddlewares), handler);
+        pendingMiddlewares.clear();
+    }
+
+    public final void options(String url, Handler handler) {
+        router.add(HttpMethod.OPTIONS, url, new ArrayList<>(pendingMiddlewares), handler);
+        pendingMiddlewares.clear();
+    }
+
+    // Async routes use config.getAsyncTimeout() unless given their own timeout
+    public final void addAsync(HttpMethod method, String url, AsyncHandler handler) {
+        addAsync(method, url, config.getAsyncTimeout(), handler);
+    }
+
+    public final void addAsync(HttpMethod method, String url, Duration timeout, AsyncHandler handler) {
+        router.add(method, url, new ArrayList<>(pendingMiddlewares), new AwaitingHandler(handler, timeout));
+        pendingMiddlewares.clear();
+    }
+
+    public final void getAsync(String url, AsyncHandler handler) {
+        addAsync(HttpMethod.GET, url, handler);
+    }
+
+    public final void getAsync(String url, Duration timeout, AsyncHandler handler) {
+        addAsync(HttpMethod.GET, url, timeout, handler);
+    }
+
+    public final void postAsync(String url, AsyncHandler handler) {
+        addAsync(HttpMethod.POST, url, handler);
+    }
+
+    public final void postAsync(String url, Duration timeout, AsyncHandler handler) {
+        addAsync(HttpMethod.POST, url, timeout, handler);
+    }
+
+    // Serves files under root for GET/HEAD requests below prefix, e.g. staticFiles("/assets", Path.of("public"))
+    public final void staticFiles(String prefix, Path root) {
+        String normalizedPrefix = prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
+        router.add(HttpMethod.GET, normalizedPrefix + "/**", new ArrayList<>(pendingMiddlewares),
+                new StaticFileHandler(normalizedPrefix, root, config.isCompression()));
+        pendingMiddlewares.clear();
+    }
+
+    // Exposes getMetrics() in Prometheus text format, e.g. metricsEndpoint("/metrics"). Pending route
+    // middlewares apply, so the endpoint can be put behind authentication like any other route.
+    public final void metricsEndpoint(String path) {
+        router.add(HttpMethod.GET, path, new ArrayList<>(pendingMiddlewares), request -> {
+            Response response = new Response();
+            response.setHeader(Header.CONTENT_TYPE, ServerMetrics.CONTENT_TYPE);
+            response.send(metrics.toPrometheus().getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+            return response;
+        });
+        pendingMiddlewares.clear();
+    }
+
+    // Serves on the calling thread until stop() is called from another one
     public void run() {
-        System.out.printf("Running at http://localhost:%d%n", port);
-
-        try (ServerSocket server = new ServerSocket(port)) {
-            while (true) {
-                Thread.ofVirtual().start(()->{
-                    try (Socket client = server.accept()) {
-                        InputStream input = client.getInputStream();
-                        OutputStream writer = client.getOutputStream();
-                        try {
-                            Request request = RequestParser.parse(input);
-                            Response response = router.match(request);
-                            response.sendOutput(writer);
-                        } catch (RequestException e) {
-                            Response response = new Response();
-                            response.setText(e.getMessage(), e.getStatus());
-                            response.sendOutput(writer);
-                        } catch (Exception e) {
-                            System.err.println(e.getMessage());
-                            Response response = new Response();
-                            response.setText("Internal Server Error", HttpStatus.INTERNAL_SERVER_ERROR);
-                            response.sendOutput(writer);
-                        }
-                    } catch (IOException e) {
-                        System.err.println("Error handling client: " + e.getMessage());
+        try {
+            start();
+        } catch (UncheckedIOException e) {
+            System.err.println("Server error: " + e.getCause().getMessage());
+            return;
+        }
+        System.out.printf("Running at http://localhost:%d%n", getPort());
+        try {
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Binds the port and returns once connections are being accepted, so readiness can be signalled right after.
+    // Connections are served on a non-daemon thread until stop(). A server is started at most once.
+    public synchronized void start() {
+        if (serverChannel != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        ServerSocketChannel channel;
+        try {
+            channel = ServerSocketChannel.open();
+            try {
+                if (config.isReusePort()) {
+                    if (!channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                        throw new IllegalStateException("SO_REUSEPORT is not supported on this platform");
                     }
-                }).join();
+                    channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                }
+                channel.bind(new InetSocketAddress(port), config.getBacklog());
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
             }
         } catch (IOException e) {
-            System.err.println("Server error: " + e.getMessage());
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException("Failed to bind port " + port, e);
+        }
+        serverChannel = channel;
+        acceptor = Thread.ofPlatform().name("http4j-acceptor").start(() -> {
+            try (channel) {
+                engine.serve(channel);
+            } catch (IOException e) {
+                System.err.println("Server error: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    // The bound port, which differs from the constructor's when that was 0; -1 before start()
+    public synchronized int getPort() {
+        if (serverChannel == null) {
+            return -1;
+        }
+        try {
+            return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return port;
+        }
+    }
+
+    // Stops accepting and closes idle keep-alive connections right away. Connections in the middle of a request
+    // get until the timeout to send their response, with "Connection: close"; any still busy after that are
+    // closed and their handler threads interrupted. Calling it again returns the first report.
+    public synchronized ShutdownReport stop(Duration timeout) throws InterruptedException {
+        if (serverChannel == null) {
+            throw new IllegalStateException("Server is not started");
+        }
+        if (shutdownReport != null) {
+            return shutdownReport;
         }
+        shutdownReport = engine.shutdown(serverChannel, timeout);
+        return shutdownReport;
     }
-}
\ No newline at end of file
+}
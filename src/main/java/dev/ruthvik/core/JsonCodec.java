@@ -0,0 +1,16 @@
+package dev.ruthvik.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+// Serializer behind Request.getJson and Response.setJson, chosen with ServerConfig.jsonCodec. Both sides
+// work on streams: request bodies are parsed as they arrive and responses are written as they are produced.
+public interface JsonCodec {
+    // Writes value as UTF-8 JSON; out must be flushed but not closed
+    void write(Object value, OutputStream out) throws IOException;
+
+    // Reads one JSON document of the given type; malformed input is reported as an IOException
+    <T> T read(InputStream in, Type type) throws IOException;
+}
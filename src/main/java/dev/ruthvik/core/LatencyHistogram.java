@@ -0,0 +1,100 @@
+package dev.ruthvik.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free latency histogram with HdrHistogram-style log-linear buckets: every power of two is split into
+// 16 linear sub-buckets, so any recorded value is reported within 6.25% across the full range of longs.
+// Recording is a couple of bit operations and one atomic increment.
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        totalNanos.add(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    // Upper bound, in nanoseconds, of the bucket holding the given percentile (0-100); 0 when empty
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return upperBound(i) - 1;
+            }
+        }
+        return upperBound(BUCKET_COUNT - 1) - 1;
+    }
+
+    // Cumulative counts at each bound (nanoseconds, ascending), as a Prometheus histogram reports them.
+    // A bucket straddling a bound is counted above it.
+    long[] cumulativeCounts(long[] boundsNanos) {
+        long[] cumulative = new long[boundsNanos.length];
+        int bound = 0;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT && bound < boundsNanos.length; i++) {
+            while (bound < boundsNanos.length && upperBound(i) - 1 > boundsNanos[bound]) {
+                cumulative[bound++] = seen;
+            }
+            seen += counts.get(i);
+        }
+        while (bound < boundsNanos.length) {
+            cumulative[bound++] = seen;
+        }
+        return cumulative;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram(count=" + getCount()
+                + ", p50=" + TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(50)) + "us"
+                + ", p99=" + TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(99)) + "us)";
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    // Exclusive upper bound of a bucket
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket + 1;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long upper = (long) (SUB_BUCKETS + subBucket + 1) << shift;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
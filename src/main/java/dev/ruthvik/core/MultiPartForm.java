@@ -6,6 +6,13 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
 import java.util.Optional;
 
@@ -52,6 +59,57 @@ public class MultiPartForm {
     public static class FileItem {
         private String fileName;
         private String contentType;
+        private long size;
+        // Exactly one of these is set: small uploads stay in memory, large ones are spilled to a temp file
+        @ToString.Exclude
         private byte[] content;
+        private Path path;
+        // Set while path points at a parser-owned temp file that must be removed after the request
+        @Getter(AccessLevel.NONE)
+        private boolean temporary;
+
+        public boolean isInMemory() {
+            return path == null;
+        }
+
+        public Optional<Path> getPath() {
+            return Optional.ofNullable(path);
+        }
+
+        public byte[] getContent() {
+            if (content != null) {
+                return content;
+            }
+            try {
+                return Files.readAllBytes(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public InputStream getInputStream() throws IOException {
+            return content != null ? new ByteArrayInputStream(content) : Files.newInputStream(path);
+        }
+
+        // Moves a spilled upload into place instead of copying it through the heap
+        public void saveTo(Path target) throws IOException {
+            if (content != null) {
+                Files.write(target, content);
+            } else {
+                Files.move(path, target, StandardCopyOption.REPLACE_EXISTING);
+                path = target;
+                temporary = false;
+            }
+        }
+
+        void delete() {
+            if (temporary) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    System.err.println("Failed to delete upload temp file " + path + ": " + e.getMessage());
+                }
+            }
+        }
     }
 }
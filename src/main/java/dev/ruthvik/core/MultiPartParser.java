@@ -0,0 +1,294 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpStatus;
+import dev.ruthvik.exception.BadRequestException;
+import dev.ruthvik.exception.RequestException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+// Streams a multipart/form-data body part by part through a fixed buffer. Part bodies are copied out as
+// soon as they can't be the start of a boundary, and file parts over the spill threshold go to temp files.
+class MultiPartParser {
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final InputStream input;
+    // "\r\n--" + boundary; the first boundary is matched by seeding the buffer with a virtual CRLF
+    private final byte[] delimiter;
+    private final int[] skipTable = new int[256];
+    private final long spillThreshold;
+    private final Path tempDirectory;
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    private final List<MultiPartForm.FileItem> createdFiles = new ArrayList<>();
+
+    MultiPartParser(InputStream input, String boundary, ServerConfig config) {
+        this.input = input;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.spillThreshold = config.getMultipartSpillThreshold();
+        this.tempDirectory = config.getUploadDirectory();
+        this.buffer = BufferPool.shared().acquireArray(Math.max(BUFFER_SIZE, delimiter.length * 4));
+        this.buffer[0] = '\r';
+        this.buffer[1] = '\n';
+        this.limit = 2;
+
+        // Boyer-Moore-Horspool bad character shifts
+        Arrays.fill(skipTable, delimiter.length);
+        for (int i = 0; i < delimiter.length - 1; i++) {
+            skipTable[delimiter[i] & 0xFF] = delimiter.length - 1 - i;
+        }
+    }
+
+    static String boundaryOf(String contentType) {
+        int index = contentType.indexOf("boundary=");
+        if (index == -1) {
+            throw new BadRequestException("Missing boundary in multipart form data");
+        }
+        int start = index + "boundary=".length();
+        int end = contentType.indexOf(';', start);
+        String boundary = (end == -1 ? contentType.substring(start) : contentType.substring(start, end)).trim();
+        if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        if (boundary.isEmpty() || boundary.length() > 70) {
+            throw new BadRequestException("Invalid boundary in multipart form data");
+        }
+        return boundary;
+    }
+
+    // Hands every field and file to the callbacks as soon as its closing boundary has been read
+    void parse(BiConsumer<String, String> onField, BiConsumer<String, MultiPartForm.FileItem> onFile) throws IOException {
+        try {
+            // Preamble before the first boundary is discarded
+            if (!copyUntilDelimiter(OutputStream.nullOutputStream())) {
+                throw new BadRequestException("Missing boundary in multipart body");
+            }
+            while (!isFinalBoundary()) {
+                readPart(onField, onFile);
+            }
+            // Epilogue after the closing boundary is ignored
+            while (!eof) {
+                position = limit;
+                fill();
+            }
+        } catch (IOException | RuntimeException e) {
+            createdFiles.forEach(MultiPartForm.FileItem::delete);
+            throw e;
+        } finally {
+            BufferPool.shared().release(buffer);
+            buffer = null;
+        }
+    }
+
+    private void readPart(BiConsumer<String, String> onField, BiConsumer<String, MultiPartForm.FileItem> onFile) throws IOException {
+        // Part header names are case-insensitive, as in any MIME entity
+        Headers partHeaders = new Headers();
+        String headerLine;
+        while (!(headerLine = readLine()).isEmpty()) {
+            int colon = headerLine.indexOf(':');
+            if (colon != -1) {
+                partHeaders.set(headerLine.substring(0, colon).trim(), headerLine.substring(colon + 1).trim());
+            }
+        }
+
+        String disposition = partHeaders.get("Content-Disposition");
+        String name = null, filename = null;
+        if (disposition != null) {
+            for (String param : disposition.split(";")) {
+                param = param.trim();
+                if (param.startsWith("name=")) {
+                    name = param.substring("name=".length()).replace("\"", "");
+                }
+                if (param.startsWith("filename=")) {
+                    filename = param.substring("filename=".length()).replace("\"", "");
+                }
+            }
+        }
+
+        if (name == null) {
+            // Parts without a usable disposition are skipped
+            copyUntilDelimiterOrFail(OutputStream.nullOutputStream());
+        } else if (filename == null) {
+            String fieldName = name;
+            ByteArrayOutputStream value = new ByteArrayOutputStream();
+            copyUntilDelimiterOrFail(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    if (value.size() + len > spillThreshold) {
+                        throw new RequestException("Form field too large: " + fieldName, HttpStatus.PAYLOAD_TOO_LARGE);
+                    }
+                    value.write(b, off, len);
+                }
+            });
+            onField.accept(name, value.toString(StandardCharsets.UTF_8).trim());
+        } else {
+            MultiPartForm.FileItem file = new MultiPartForm.FileItem();
+            file.setFileName(filename);
+            file.setContentType(Objects.requireNonNullElse(partHeaders.get(Header.CONTENT_TYPE), "application/octet-stream"));
+            try (SpillingOutputStream content = new SpillingOutputStream(file)) {
+                copyUntilDelimiterOrFail(content);
+            }
+            onFile.accept(name, file);
+        }
+    }
+
+    // After a delimiter: "--" closes the body, anything else is padding up to the CRLF before part headers
+    private boolean isFinalBoundary() throws IOException {
+        while (limit - position < 2 && !eof) {
+            fill();
+        }
+        if (limit - position >= 2 && buffer[position] == '-' && buffer[position + 1] == '-') {
+            position += 2;
+            return true;
+        }
+        readLine();
+        return false;
+    }
+
+    private void copyUntilDelimiterOrFail(OutputStream sink) throws IOException {
+        if (!copyUntilDelimiter(sink)) {
+            throw new BadRequestException("Unexpected end of multipart body");
+        }
+    }
+
+    // Writes bytes up to the next delimiter into sink and consumes the delimiter. Returns false on EOF.
+    private boolean copyUntilDelimiter(OutputStream sink) throws IOException {
+        while (true) {
+            int match = indexOfDelimiter();
+            if (match != -1) {
+                sink.write(buffer, position, match - position);
+                position = match + delimiter.length;
+                return true;
+            }
+            // Only the tail that could still begin a delimiter has to stay in the buffer
+            int safe = limit - (delimiter.length - 1);
+            if (safe > position) {
+                sink.write(buffer, position, safe - position);
+                position = safe;
+            }
+            if (eof) {
+                return false;
+            }
+            fill();
+        }
+    }
+
+    private int indexOfDelimiter() {
+        int last = delimiter.length - 1;
+        int i = position;
+        while (i + last < limit) {
+            int j = last;
+            while (buffer[i + j] == delimiter[j]) {
+                if (j == 0) {
+                    return i;
+                }
+                j--;
+            }
+            i += skipTable[buffer[i + last] & 0xFF];
+        }
+        return -1;
+    }
+
+    private String readLine() throws IOException {
+        int scanned = position;
+        while (true) {
+            for (int i = scanned; i + 1 < limit; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    String line = new String(buffer, position, i - position, StandardCharsets.UTF_8);
+                    position = i + 2;
+                    return line;
+                }
+            }
+            if (eof) {
+                throw new BadRequestException("Unexpected end of multipart body");
+            }
+            if (position == 0 && limit == buffer.length) {
+                throw new RequestException("Multipart part headers too large", HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+            }
+            scanned = Math.max(position, limit - 1) - position;
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        int read = input.read(buffer, limit, buffer.length - limit);
+        if (read == -1) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    // Keeps a part in memory until it outgrows the spill threshold, then moves it to a temp file
+    private final class SpillingOutputStream extends OutputStream {
+        private final MultiPartForm.FileItem file;
+        private final ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private OutputStream disk;
+        private long size;
+
+        private SpillingOutputStream(MultiPartForm.FileItem file) {
+            this.file = file;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (disk == null && size + len > spillThreshold) {
+                Path path = tempDirectory == null
+                        ? Files.createTempFile("http4j-upload-", ".tmp")
+                        : Files.createTempFile(tempDirectory, "http4j-upload-", ".tmp");
+                file.setPath(path);
+                file.setTemporary(true);
+                createdFiles.add(file);
+                disk = Files.newOutputStream(path);
+                memory.writeTo(disk);
+                memory.reset();
+            }
+            if (disk != null) {
+                disk.write(b, off, len);
+            } else {
+                memory.write(b, off, len);
+            }
+            size += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.setSize(size);
+            if (disk != null) {
+                disk.close();
+            } else {
+                file.setContent(memory.toByteArray());
+            }
+        }
+    }
+}
@@ -0,0 +1,692 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.HttpStatus;
+import dev.ruthvik.exception.RequestException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Event-loop engine: a few selector threads own every socket and do all network I/O without blocking.
+// A request is handed to a virtual thread only once RequestFramer says it has fully arrived, and the
+// serialized response is written back by the loop. An idle keep-alive connection costs a selection key
+// and a few fields rather than a parked thread, and holds no buffer between requests.
+//
+// Request bodies are buffered in memory, so they are capped at maxBufferedBodySize; the blocking engine is
+// the better fit for large uploads. Responses, including streamed and file bodies, reach the loop in slices
+// of RESPONSE_SLICE_SIZE, and the handler thread waits while MAX_PENDING_SLICES of them are unsent, so a
+// connection never holds more than that much of a response however large it is.
+//
+// Every loop checks its connections' timeouts once a second: idle and stalled connections are closed,
+// requests whose headers or body arrive too slowly are answered with 408, and responses the client stops
+// reading are dropped after writeTimeout.
+class NioEngine implements ServerEngine {
+    // Every loop reads into one pooled direct buffer; bytes are copied out only while a request is partial
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_INBOUND_SIZE = 4096;
+    private static final int RESPONSE_SLICE_SIZE = 64 * 1024;
+    private static final int MAX_PENDING_SLICES = 4;
+    private static final long SELECT_TIMEOUT_MILLIS = 1000;
+
+    private static final BufferPool pool = BufferPool.shared();
+
+    private final Router router;
+    private final ServerConfig config;
+    private final ServerMetrics metrics;
+    private final Semaphore connectionPermits;
+    private final AddressConnectionLimit addressLimit;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final EventLoop[] loops;
+    private final AtomicInteger openConnections = new AtomicInteger();
+    // Set by shutdown, which then takes over closing the loops from serve
+    private volatile boolean stopping;
+
+    NioEngine(Router router, ServerConfig config, ServerMetrics metrics) {
+        this.router = router;
+        this.config = config;
+        this.metrics = metrics;
+        this.connectionPermits = new Semaphore(config.getMaxConnections());
+        this.addressLimit = new AddressConnectionLimit(config.getMaxConnectionsPerAddress());
+        this.loops = new EventLoop[config.getEventLoops()];
+    }
+
+    @Override
+    public void serve(ServerSocketChannel server) throws IOException, InterruptedException {
+        try {
+            // Guarded against a shutdown that arrives while the loops are still being started
+            synchronized (loops) {
+                if (stopping) {
+                    return;
+                }
+                for (int i = 0; i < loops.length; i++) {
+                    loops[i] = new EventLoop();
+                    Thread.ofPlatform().name("http4j-loop-" + i).daemon(true).start(loops[i]);
+                }
+            }
+            int next = 0;
+            while (server.isOpen()) {
+                connectionPermits.acquire();
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (IOException e) {
+                    connectionPermits.release();
+                    if (!server.isOpen()) {
+                        break;
+                    }
+                    System.err.println("Error accepting client: " + e.getMessage());
+                    continue;
+                }
+                loops[next].register(client, remoteAddress(client));
+                next = (next + 1) % loops.length;
+            }
+        } finally {
+            if (!stopping) {
+                closeLoops();
+            }
+        }
+    }
+
+    @Override
+    public ShutdownReport shutdown(ServerSocketChannel server, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        // Set first, so the acceptor leaving serve() knows it is a shutdown and not a failure
+        stopping = true;
+        closeQuietly(server);
+        // Wakes an acceptor waiting for a free slot so it sees the closed server channel
+        connectionPermits.release();
+
+        AtomicInteger busy = new AtomicInteger();
+        CountDownLatch drained = new CountDownLatch(loops.length);
+        synchronized (loops) {
+            for (EventLoop loop : loops) {
+                if (loop == null) {
+                    drained.countDown();
+                    continue;
+                }
+                loop.execute(() -> {
+                    busy.addAndGet(loop.drain());
+                    drained.countDown();
+                });
+            }
+        }
+        // A loop that already stopped never runs its task; its connections are closed anyway
+        drained.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        while (openConnections.get() > 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(DRAIN_POLL_MILLIS);
+        }
+        int aborted = openConnections.get();
+        closeLoops();
+        return new ShutdownReport(Math.max(0, busy.get() - aborted), aborted);
+    }
+
+    private void closeLoops() {
+        synchronized (loops) {
+            for (EventLoop loop : loops) {
+                if (loop != null) {
+                    loop.shutdown();
+                }
+            }
+        }
+    }
+
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final ByteBuffer readBuffer = pool.acquireDirect(READ_BUFFER_SIZE);
+        // Work handed over by the acceptor and by handler threads; only the loop thread touches sockets
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private long lastIdleCheck = System.nanoTime();
+
+        private EventLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        // remote is null when the client's address can't be read; it is then exempt from the per-address limit
+        void register(SocketChannel channel, InetSocketAddress remote) {
+            execute(() -> {
+                NioConnection connection = null;
+                try {
+                    channel.configureBlocking(false);
+                    connection = new NioConnection(this, channel);
+                    if (stopping) {
+                        // Accepted just before the server stopped, after this loop was drained
+                        connection.close();
+                        return;
+                    }
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    connection.connection.setRemoteAddress(remote);
+                    InetAddress address = remote != null ? remote.getAddress() : null;
+                    if (addressLimit.tryAcquire(address)) {
+                        connection.address = address;
+                    } else {
+                        connection.reject(new RequestException("Too many connections from this address",
+                                HttpStatus.TOO_MANY_REQUESTS));
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error registering client: " + e.getMessage());
+                    if (connection != null) {
+                        connection.close();
+                    } else {
+                        closeQuietly(channel);
+                        connectionPermits.release();
+                    }
+                }
+            });
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        // Closes connections waiting for a request and marks the rest to close after their current response.
+        // Returns how many are still busy.
+        int drain() {
+            int busy = 0;
+            for (SelectionKey key : selector.keys()) {
+                NioConnection connection = (NioConnection) key.attachment();
+                if (connection.isIdle() && connection.inboundLength == 0) {
+                    connection.close();
+                } else {
+                    connection.connection.drain();
+                    busy++;
+                }
+            }
+            return busy;
+        }
+
+        // Closes every connection, interrupting handlers that are still running
+        void shutdown() {
+            execute(() -> {
+                for (SelectionKey key : selector.keys()) {
+                    ((NioConnection) key.attachment()).abort();
+                }
+                closeQuietly(selector);
+            });
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (selector.isOpen()) {
+                    selector.select(SELECT_TIMEOUT_MILLIS);
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    if (!selector.isOpen()) {
+                        return;
+                    }
+                    Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                    while (selected.hasNext()) {
+                        SelectionKey key = selected.next();
+                        selected.remove();
+                        NioConnection connection = (NioConnection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isWritable()) {
+                                connection.onWritable();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                connection.onReadable();
+                            }
+                        } catch (IOException e) {
+                            connection.close();
+                        }
+                    }
+                    enforceTimeouts();
+                }
+            } catch (IOException e) {
+                System.err.println("Event loop error: " + e.getMessage());
+            } catch (ClosedSelectorException e) {
+                // shut down
+            } finally {
+                pool.release(readBuffer);
+            }
+        }
+
+        private void enforceTimeouts() {
+            long now = System.nanoTime();
+            if (now - lastIdleCheck < SELECT_TIMEOUT_MILLIS * 1_000_000) {
+                return;
+            }
+            lastIdleCheck = now;
+            long idleNanos = config.getIdleTimeout().toNanos();
+            long headerNanos = config.getHeaderReadTimeout().toNanos();
+            long writeNanos = config.getWriteTimeout().toNanos();
+            long graceNanos = config.getBodyRateGracePeriod().toNanos();
+            long minBodyRate = config.getMinBodyRate();
+            for (SelectionKey key : selector.keys()) {
+                NioConnection connection = (NioConnection) key.attachment();
+                if (!connection.outbound.isEmpty()) {
+                    if (now - connection.lastWriteProgress > writeNanos) {
+                        connection.close();
+                    }
+                    continue;
+                }
+                if (connection.processing) {
+                    continue;
+                }
+                // Covers both idle keep-alive connections and clients that stall halfway through a request
+                if (now - connection.lastActivity > idleNanos) {
+                    connection.close();
+                    continue;
+                }
+                if (connection.inboundLength == 0) {
+                    continue;
+                }
+                int head = connection.framer.headLength();
+                if (head < 0) {
+                    if (now - connection.requestStartedAt > headerNanos) {
+                        connection.reject(new RequestException("Timed out reading request headers",
+                                HttpStatus.REQUEST_TIMEOUT));
+                    }
+                } else if (minBodyRate > 0 && connection.bodyStartedAt != 0) {
+                    long elapsed = now - connection.bodyStartedAt;
+                    long bodyBytes = connection.inboundLength - head;
+                    if (elapsed > graceNanos && bodyBytes < minBodyRate * (elapsed / 1e9)) {
+                        connection.reject(new RequestException("Request body arrived too slowly",
+                                HttpStatus.REQUEST_TIMEOUT));
+                    }
+                }
+            }
+        }
+    }
+
+    private final class NioConnection {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final Connection connection = new Connection(router, config, metrics);
+        private final RequestFramer framer = new RequestFramer(config);
+        private SelectionKey key;
+
+        // Received bytes not yet handed to a handler; returned to the pool whenever it drains
+        private byte[] inbound;
+        private int inboundLength;
+        // Response slices waiting for the socket, oldest first; each array goes back to the pool once sent
+        private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+        // One permit per slice the handler thread may have queued and not yet seen written
+        private final Semaphore slicePermits = new Semaphore(MAX_PENDING_SLICES);
+        private boolean processing;
+        private boolean closeAfterWrite;
+        // The client shut down its side while a handler was running
+        private boolean inputClosed;
+        // Read by a handler thread waiting for a slice permit
+        private volatile boolean closed;
+        private long lastActivity = System.nanoTime();
+        // When the partial request in inbound started arriving, and when its head completed (0 until then)
+        private long requestStartedAt;
+        private long bodyStartedAt;
+        private long lastWriteProgress;
+        // Counted against the per-address limit, released on close
+        private InetAddress address;
+        // The virtual thread running this connection's handler, if any
+        private volatile Thread worker;
+
+        private NioConnection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+            openConnections.incrementAndGet();
+        }
+
+        boolean isIdle() {
+            return !processing && outbound.isEmpty();
+        }
+
+        void onReadable() throws IOException {
+            ByteBuffer buffer = loop.readBuffer;
+            buffer.clear();
+            int read = channel.read(buffer);
+            if (read == -1) {
+                if (processing) {
+                    // Possibly just a half-close: the handler finishes and its response is still sent,
+                    // but async work is told the client is gone
+                    inputClosed = true;
+                    updateInterest();
+                    connection.clientDisconnected();
+                    return;
+                }
+                close();
+                return;
+            }
+            if (read == 0) {
+                return;
+            }
+            buffer.flip();
+            if (inboundLength == 0) {
+                requestStartedAt = System.nanoTime();
+            }
+            if (inbound == null) {
+                inbound = pool.acquireArray(Math.max(INITIAL_INBOUND_SIZE, read));
+            } else if (inboundLength + read > inbound.length) {
+                byte[] grown = pool.acquireArray(Math.max(inbound.length * 2, inboundLength + read));
+                System.arraycopy(inbound, 0, grown, 0, inboundLength);
+                pool.release(inbound);
+                inbound = grown;
+            }
+            buffer.get(inbound, inboundLength, read);
+            inboundLength += read;
+            lastActivity = System.nanoTime();
+            if (processing) {
+                // Reading goes on during a request only to notice disconnects; pipelined input beyond a
+                // read buffer's worth waits in the socket until the handler is done
+                updateInterest();
+                return;
+            }
+            dispatchCompleteRequests();
+        }
+
+        void onWritable() throws IOException {
+            ByteBuffer slice;
+            while ((slice = outbound.peek()) != null) {
+                if (channel.write(slice) > 0) {
+                    lastWriteProgress = System.nanoTime();
+                }
+                if (slice.hasRemaining()) {
+                    updateInterest();
+                    return;
+                }
+                outbound.poll();
+                pool.release(slice.array());
+                slicePermits.release();
+            }
+            if (processing) {
+                // The handler is still producing its responses; more slices follow
+                updateInterest();
+                return;
+            }
+            if (closeAfterWrite || stopping && inboundLength == 0) {
+                close();
+                return;
+            }
+            lastActivity = System.nanoTime();
+            // Input that arrived while the handler ran is only now being waited on
+            requestStartedAt = lastActivity;
+            bodyStartedAt = 0;
+            if (inputClosed) {
+                // Requests that arrived before the client shut down are still answered
+                dispatchCompleteRequests();
+                if (!processing) {
+                    close();
+                }
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            // Pipelined requests may already be waiting in the inbound buffer
+            dispatchCompleteRequests();
+        }
+
+        // Hands every fully received request to one handler thread; further requests wait until its responses are out
+        // A request that can't be framed never reaches a handler: it is answered with the framing error once
+        // the complete requests ahead of it are, and the connection closes.
+        private void dispatchCompleteRequests() {
+            int end = 0;
+            RequestException malformed = null;
+            while (end < inboundLength) {
+                int frameEnd = framer.frame(inbound, end, inboundLength);
+                if (frameEnd == RequestFramer.INCOMPLETE) {
+                    break;
+                }
+                if (frameEnd == RequestFramer.MALFORMED) {
+                    malformed = framer.failure();
+                }
+                framer.reset();
+                bodyStartedAt = 0;
+                if (malformed != null) {
+                    break;
+                }
+                end = frameEnd;
+            }
+            if (bodyStartedAt == 0 && framer.headLength() >= 0) {
+                bodyStartedAt = System.nanoTime();
+            }
+            if (malformed != null && end == 0) {
+                reject(malformed);
+                return;
+            }
+            if (end == 0) {
+                return;
+            }
+
+            // The handler thread gets the complete requests; a partial one stays behind for the next read,
+            // and whatever follows a malformed one is dropped
+            byte[] requests = inbound;
+            inboundLength = malformed != null ? 0 : inboundLength - end;
+            if (inboundLength == 0) {
+                inbound = null;
+            } else {
+                inbound = pool.acquireArray(Math.max(INITIAL_INBOUND_SIZE, inboundLength));
+                System.arraycopy(requests, end, inbound, 0, inboundLength);
+            }
+            processing = true;
+            int length = end;
+            RequestException rejection = malformed;
+            workers.execute(() -> process(requests, length, rejection));
+        }
+
+        // Reads go on while a handler runs, to notice disconnects, up to a read buffer's worth of pipelined input;
+        // once the handler is done they wait until its responses are written
+        private void updateInterest() {
+            int ops = outbound.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+            if (processing && !inputClosed && inboundLength < READ_BUFFER_SIZE) {
+                ops |= SelectionKey.OP_READ;
+            }
+            key.interestOps(ops);
+        }
+
+        // Called on the loop with a slice from ResponseOutput
+        private void send(ByteBuffer slice) {
+            if (closed) {
+                pool.release(slice.array());
+                slicePermits.release();
+                return;
+            }
+            if (outbound.isEmpty()) {
+                lastWriteProgress = System.nanoTime();
+            }
+            outbound.add(slice);
+            try {
+                onWritable();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        // Runs on a virtual thread
+        private void process(byte[] requests, int length, RequestException rejection) {
+            worker = Thread.currentThread();
+            ResponseOutput output = new ResponseOutput();
+            RequestParser parser = new RequestParser(new ByteArrayInputStream(requests, 0, length), config);
+            boolean keepOpen;
+            try {
+                keepOpen = connection.serve(parser, output, null);
+                if (rejection != null) {
+                    if (keepOpen) {
+                        connection.reject(rejection, output);
+                    }
+                    keepOpen = false;
+                }
+                output.flush();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error handling client: " + e.getMessage());
+                keepOpen = false;
+            } finally {
+                worker = null;
+                output.discard();
+                parser.release();
+                pool.release(requests);
+            }
+            boolean close = !keepOpen;
+            loop.execute(() -> respond(close));
+        }
+
+        // Queued behind every slice of the handler's responses, so they are all in outbound by now
+        private void respond(boolean close) {
+            processing = false;
+            if (closed) {
+                connection.release();
+                return;
+            }
+            closeAfterWrite = close;
+            try {
+                onWritable();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        // Answers on the loop thread with an error response and closes once it is written. Only called with
+        // nothing in outbound, so the response's one slice never waits for a permit.
+        void reject(RequestException e) {
+            ResponseOutput output = new ResponseOutput();
+            try {
+                connection.reject(e, output);
+            } catch (IOException ex) {
+                output.discard();
+                close();
+                return;
+            }
+            loop.execute(() -> respond(true));
+        }
+
+        // Handler-side end of outbound: bytes are gathered into pooled slices, each handed to the loop when it
+        // fills or on flush. A writer that gets MAX_PENDING_SLICES ahead of the socket blocks, which is cheap on
+        // a virtual thread, until the loop has written one or the connection closes.
+        private final class ResponseOutput extends OutputStream {
+            private byte[] slice;
+            private int count;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (slice == null) {
+                    slice = pool.acquireArray(RESPONSE_SLICE_SIZE);
+                }
+                slice[count++] = (byte) b;
+                if (count == slice.length) {
+                    submit();
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    if (slice == null) {
+                        slice = pool.acquireArray(RESPONSE_SLICE_SIZE);
+                    }
+                    int copied = Math.min(len, slice.length - count);
+                    System.arraycopy(b, off, slice, count, copied);
+                    count += copied;
+                    off += copied;
+                    len -= copied;
+                    if (count == slice.length) {
+                        submit();
+                    }
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (count > 0) {
+                    submit();
+                }
+            }
+
+            // Returns a slice that was never handed over
+            void discard() {
+                if (slice != null) {
+                    pool.release(slice);
+                    slice = null;
+                    count = 0;
+                }
+            }
+
+            private void submit() throws IOException {
+                try {
+                    slicePermits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while writing the response");
+                }
+                if (closed) {
+                    slicePermits.release();
+                    throw new IOException("Connection closed");
+                }
+                ByteBuffer ready = ByteBuffer.wrap(slice, 0, count);
+                slice = null;
+                count = 0;
+                loop.execute(() -> send(ready));
+            }
+        }
+
+        void abort() {
+            Thread handler = worker;
+            if (handler != null) {
+                handler.interrupt();
+            }
+            close();
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (inbound != null) {
+                pool.release(inbound);
+                inbound = null;
+            }
+            for (ByteBuffer slice : outbound) {
+                pool.release(slice.array());
+            }
+            outbound.clear();
+            // Wakes a handler thread waiting for a permit; it sees closed and gives up
+            slicePermits.release(MAX_PENDING_SLICES);
+            // A handler still running returns its buffers when it completes
+            if (!processing) {
+                connection.release();
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            closeQuietly(channel);
+            connectionPermits.release();
+            addressLimit.release(address);
+            openConnections.decrementAndGet();
+        }
+    }
+
+    private static InetSocketAddress remoteAddress(SocketChannel channel) {
+        try {
+            return channel.getRemoteAddress() instanceof InetSocketAddress remote ? remote : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // already closing
+        }
+    }
+}
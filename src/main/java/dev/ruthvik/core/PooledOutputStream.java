@@ -0,0 +1,52 @@
+package dev.ruthvik.core;
+
+import java.io.OutputStream;
+
+// Growable in-memory sink backed by BufferPool arrays; the bytes stay valid until release()
+class PooledOutputStream extends OutputStream {
+    private final BufferPool pool;
+    private byte[] buffer;
+    private int count;
+
+    PooledOutputStream(BufferPool pool, int initialCapacity) {
+        this.pool = pool;
+        this.buffer = pool.acquireArray(initialCapacity);
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int size() {
+        return count;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    void release() {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (count + extra > buffer.length) {
+            byte[] grown = pool.acquireArray(Math.max(buffer.length * 2, count + extra));
+            System.arraycopy(buffer, 0, grown, 0, count);
+            pool.release(buffer);
+            buffer = grown;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpStatus;
+import dev.ruthvik.enums.RateLimitScope;
+import dev.ruthvik.exception.RequestException;
+import lombok.Builder;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token-bucket rate limiting, attached like any other middleware:
+//
+//     server.addGlobalMiddleware(RateLimiter.builder().scope(RateLimitScope.CLIENT).rate(50).burst(100).build());
+//
+// Each bucket holds up to burst tokens and refills at rate per second; a request takes one token or is
+// answered with 429 and a Retry-After telling the client when the next one will be available. Buckets are
+// kept in a ConcurrentHashMap and each is a single AtomicLong, so admitting a request is one CAS with no
+// lock. Buckets that have refilled completely are forgotten after idleTimeout, which leaves the map holding
+// only recently active clients. Requests without a remote address are not limited by client scopes.
+public class RateLimiter implements AroundMiddleware {
+    private final RateLimitScope scope;
+    // Time for one token to refill, and how far a bucket's schedule may run ahead of now (burst tokens' worth)
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final long idleTimeoutNanos;
+
+    private final ConcurrentHashMap<Object, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep;
+
+    @Builder
+    private RateLimiter(RateLimitScope scope, double rate, int burst, Duration idleTimeout) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate must be positive");
+        }
+        this.scope = scope != null ? scope : RateLimitScope.CLIENT;
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+        this.capacityNanos = intervalNanos * Math.max(1, burst > 0 ? burst : (long) Math.ceil(rate));
+        this.idleTimeoutNanos = (idleTimeout != null ? idleTimeout : Duration.ofMinutes(1)).toNanos();
+        this.nextSweep = new AtomicLong(System.nanoTime() + idleTimeoutNanos);
+    }
+
+    @Override
+    public Response handle(Request request, Handler next) throws RequestException {
+        Object key = key(request);
+        if (key == null) {
+            return next.handle(request);
+        }
+        long now = System.nanoTime();
+        sweepIfDue(now);
+        long waitNanos = buckets.computeIfAbsent(key, ignored -> new Bucket(now)).acquire(now);
+        if (waitNanos > 0) {
+            return tooManyRequests(waitNanos);
+        }
+        return next.handle(request);
+    }
+
+    // Buckets currently tracked, for monitoring
+    public int size() {
+        return buckets.size();
+    }
+
+    private Object key(Request request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        InetAddress address = remote != null ? remote.getAddress() : null;
+        String route = request.getRoutePattern();
+        return switch (scope) {
+            case CLIENT -> address;
+            case ROUTE -> route;
+            case CLIENT_AND_ROUTE -> address != null && route != null ? new ClientRoute(address, route) : null;
+        };
+    }
+
+    // One request at a time sweeps, at most once per idleTimeout
+    private void sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now - due < 0 || !nextSweep.compareAndSet(due, now + idleTimeoutNanos)) {
+            return;
+        }
+        // A request racing the removal may take a token from the dropped bucket; as it was full, that only
+        // grants the client one extra token
+        buckets.values().removeIf(bucket -> bucket.idleSince(now, idleTimeoutNanos));
+    }
+
+    private static Response tooManyRequests(long waitNanos) {
+        Response response = new Response();
+        // Whole seconds, rounded up so a client honouring it finds a token
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1);
+        response.setHeader(Header.RETRY_AFTER, String.valueOf(Math.max(1, seconds)));
+        response.setText("Too many requests, slow down", HttpStatus.TOO_MANY_REQUESTS);
+        return response;
+    }
+
+    private record ClientRoute(InetAddress address, String route) {
+    }
+
+    // Token bucket kept as the time at which it will be full again (GCRA): every admitted request pushes that
+    // time one interval later, and a request is refused while it would land more than capacity ahead of now
+    private final class Bucket {
+        private final AtomicLong fullAt;
+
+        private Bucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+
+        // 0 when a token was taken, otherwise how long until one is available
+        private long acquire(long now) {
+            while (true) {
+                long current = fullAt.get();
+                long next = (current - now > 0 ? current : now) + intervalNanos;
+                long ahead = next - now;
+                if (ahead > capacityNanos) {
+                    return ahead - capacityNanos;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        private boolean idleSince(long now, long idleNanos) {
+            return now - fullAt.get() > idleNanos;
+        }
+    }
+}
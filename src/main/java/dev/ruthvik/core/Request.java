@@ -1,108 +1,312 @@
 package dev.ruthvik.core;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
 import dev.ruthvik.enums.Header;
 import dev.ruthvik.exception.BadRequestException;
+import dev.ruthvik.exception.RequestException;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
-import java.net.URLDecoder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 @ToString
 public class Request {
-    private static final Gson gson = new Gson();
+    private static final int BUFFERED_JSON_LIMIT = 64 * 1024;
+    private static final AtomicLong NEXT_ID = new AtomicLong();
 
+    // Unique within the server process, in arrival order
+    @Getter
+    private final long id;
+    // System.nanoTime() once the request head had been read; for measuring elapsed time, not a wall clock
+    @Getter
+    private final long startNanos;
     @Getter
     private final String method;
     @Getter
     private final String url;
-    private final Map<String, String> headers;
     @Getter
-    private final String body;
+    private final String version;
+    // Case-insensitive; a repeated field keeps every value
+    @Getter
+    private final Headers headers;
 
-    private final MultiPartForm multiPartForm;
+    // The body stays on the socket until a handler asks for it; each view below is decoded at most once
+    @ToString.Exclude
+    private final InputStream bodyStream;
+    @ToString.Exclude
+    private final ServerConfig config;
+    private boolean bodyStreamTaken;
+    @ToString.Exclude
+    private byte[] bodyBytes;
+    private String body;
+    private MultiPartForm multiPartForm;
+    private final List<MultiPartForm.FileItem> streamedFiles = new ArrayList<>();
 
     @Setter(AccessLevel.PACKAGE)
     private Map<String, String> pathParams = new HashMap<>();
 
+    // Query string, form body and cookies are decoded on first access and kept for the rest of the request
+    private Map<String, List<String>> queryParams;
+    private Map<String, String> formData;
+    private List<Cookie> cookies;
+
+    // Address of the client's end of the connection; a proxy in front of the server shows up as the client.
+    // null for requests that didn't arrive over a socket.
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    private InetSocketAddress remoteAddress;
+
+    // Pattern of the matched route (e.g. "/users/:id"); null until routing has matched one
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    private String routePattern;
+
+    // The connection's response compression, null when it's off; lets a cache tell which encoding this request
+    // will be sent
+    @ToString.Exclude
+    @Setter(AccessLevel.PACKAGE)
+    private Compression compression;
+
+    // Disconnect tracking for async handlers; the engine either reports a closed connection on its own (NIO)
+    // or is asked through the probe (blocking), which may only be run on the connection's thread
+    @ToString.Exclude
     @Setter(AccessLevel.PACKAGE)
-    private Map<String, String> queryParams = new HashMap<>();
+    private Runnable connectionProbe;
+    @ToString.Exclude
+    private volatile Runnable disconnectListener;
+    private volatile boolean disconnected;
 
-     Request(String method, String url, Map<String, String> headers, String body,
-                   MultiPartForm multiPartForm) {
+    // Values attached by middlewares, indexed by AttributeKey; allocated by the first setAttribute
+    @ToString.Exclude
+    private Object[] attributes;
+
+     Request(String method, String url, String version, Headers headers, InputStream bodyStream,
+                   ServerConfig config) {
+        this.id = NEXT_ID.incrementAndGet();
+        this.startNanos = System.nanoTime();
         this.method = method;
         this.url = url;
+        this.version = version;
         this.headers = headers;
-        this.body = body;
-        this.multiPartForm = multiPartForm;
+        this.bodyStream = bodyStream;
+        this.config = config;
     }
 
     private void ensureContentType(String expectedType) {
-        String actual = headers.getOrDefault("Content-Type", "").toLowerCase(Locale.ROOT);
+        String actual = Objects.requireNonNullElse(headers.get(Header.CONTENT_TYPE), "").toLowerCase(Locale.ROOT);
         if (!actual.startsWith(expectedType.toLowerCase())) {
             throw new BadRequestException("Expected Content-Type: " + expectedType + " but got: " + actual);
         }
     }
 
+    // Raw body as it arrives from the client; can only be consumed once, and not after getBodyBytes()
+    public InputStream getBodyStream() {
+        if (bodyBytes != null) {
+            return new ByteArrayInputStream(bodyBytes);
+        }
+        if (bodyStreamTaken) {
+            throw new IllegalStateException("Request body stream has already been consumed");
+        }
+        bodyStreamTaken = true;
+        return bodyStream;
+    }
+
+    public byte[] getBodyBytes() {
+        if (bodyBytes == null) {
+            try {
+                bodyBytes = getBodyStream().readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read request body", e);
+            }
+        }
+        return bodyBytes;
+    }
+
+    public String getBody() {
+        if (body == null) {
+            body = new String(getBodyBytes(), StandardCharsets.UTF_8);
+        }
+        return body;
+    }
+
     public String getText() {
         ensureContentType("text/plain");
-        return body;
+        return getBody();
     }
 
     public <T> T getJson(Class<T> clazz) {
+        return getJson((Type) clazz);
+    }
+
+    // For generic targets, e.g. getJson(new TypeToken<List<User>>() {}.getType())
+    public <T> T getJson(Type type) {
         ensureContentType("application/json");
         try {
-            return gson.fromJson(body, clazz);
-        } catch (JsonSyntaxException e) {
+            return config.getJsonCodec().read(jsonInput(), type);
+        } catch (IOException e) {
             throw new BadRequestException("Error in parsing request [invalid json]");
         }
     }
 
+    // Small bodies are buffered so they stay readable after parsing; larger ones are parsed as they arrive
+    private InputStream jsonInput() {
+        if (bodyBytes == null && !bodyStreamTaken) {
+            String contentLength = headers.get(Header.CONTENT_LENGTH);
+            if (contentLength == null || Long.parseLong(contentLength.trim()) > BUFFERED_JSON_LIMIT) {
+                return getBodyStream();
+            }
+        }
+        return new ByteArrayInputStream(getBodyBytes());
+    }
+
+    JsonCodec jsonCodec() {
+        return config.getJsonCodec();
+    }
+
+    Compression compression() {
+        return compression;
+    }
+
+    // First value of each field; the map is shared by every call on this request and can't be modified
     public Map<String, String> getFormData() {
         ensureContentType("application/x-www-form-urlencoded");
-        Map<String, String> formData = new HashMap<>();
-        String[] pairs = body.split("&");
-        for (String pair : pairs) {
-            String[] keyValue = pair.split("=", 2);
-            String key = URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8);
-            String value = keyValue.length > 1 ? URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8) : "";
-            formData.put(key, value);
+        if (formData == null) {
+            String body = getBody();
+            Map<String, String> fields = new LinkedHashMap<>();
+            UrlEncodedParser.parse(body, 0, body.length()).forEach((name, values) -> fields.put(name, values.get(0)));
+            formData = Collections.unmodifiableMap(fields);
         }
         return formData;
     }
 
     public MultiPartForm getMultiPartFormData(){
          ensureContentType("multipart/form-data");
+         if (this.multiPartForm == null) {
+             Map<String, String> formFields = new HashMap<>();
+             Map<String, MultiPartForm.FileItem> fileFields = new HashMap<>();
+             streamMultiPartFormData(formFields::put, fileFields::put);
+             this.multiPartForm = new MultiPartForm(formFields, fileFields);
+         }
          return this.multiPartForm;
     }
 
+    // Hands each field and file to the callbacks as soon as it has been read, without collecting the form
+    public void streamMultiPartFormData(BiConsumer<String, String> onField,
+                                        BiConsumer<String, MultiPartForm.FileItem> onFile) {
+        ensureContentType("multipart/form-data");
+        String boundary = MultiPartParser.boundaryOf(headers.get(Header.CONTENT_TYPE));
+        try {
+            new MultiPartParser(getBodyStream(), boundary, config).parse(onField, (name, file) -> {
+                streamedFiles.add(file);
+                onFile.accept(name, file);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read multipart body", e);
+        }
+    }
+
+    // Skips whatever the handler left unread so the next request on the connection can be parsed.
+    // Returns false when more than maxBytes remain, or the body is malformed, and the connection must close.
+    boolean discardUnreadBody(long maxBytes) {
+        try {
+            long discarded = 0;
+            byte[] scratch = new byte[4096];
+            int read;
+            while ((read = bodyStream.read(scratch)) != -1) {
+                discarded += read;
+                if (discarded > maxBytes) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException | RequestException e) {
+            return false;
+        }
+    }
+
+    // Asks the engine whether the client is still there, unless it is already known to be gone
+    void probeConnection() {
+        if (connectionProbe != null && !disconnected) {
+            connectionProbe.run();
+        }
+    }
+
+    // Runs the listener once the client is gone, straight away if it already is
+    void whenDisconnected(Runnable listener) {
+        disconnectListener = listener;
+        if (disconnected) {
+            listener.run();
+        }
+    }
+
+    void markDisconnected() {
+        disconnected = true;
+        Runnable listener = disconnectListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    // Releases per-request resources such as spilled uploads once the response has been written
+    void cleanup() {
+        streamedFiles.forEach(MultiPartForm.FileItem::delete);
+    }
+
     public boolean hasHeader(Header header) {
-        return headers.containsKey(header.value());
+        return headers.contains(header);
+    }
+
+    public boolean hasHeader(String name) {
+        return headers.contains(name);
     }
 
+    // First value of the header when the client sent it more than once
     public Optional<String> getHeader(Header header) {
-        return Optional.ofNullable(headers.get(header.value()));
+        return Optional.ofNullable(headers.get(header));
+    }
+
+    public Optional<String> getHeader(String name) {
+        return Optional.ofNullable(headers.get(name));
+    }
+
+    // Every value of a repeated header, in the order they were sent
+    public List<String> getHeaders(Header header) {
+        return headers.getAll(header);
     }
 
     public String getHeaderOrThrow(Header header) {
-        String value = headers.get(header.value());
+        String value = headers.get(header);
         if (value == null) {
             throw new BadRequestException("Missing required header: " + header.value());
         }
         return value;
     }
 
+    // First value when the parameter is repeated
     public Optional<String> getQueryParam(String key) {
-        return Optional.ofNullable(queryParams.get(key));
+        List<String> values = queryParams().get(key);
+        return values == null ? Optional.empty() : Optional.of(values.get(0));
+    }
+
+    // Every value of a repeated parameter (?tag=a&tag=b), in order; empty when absent
+    public List<String> getQueryParams(String key) {
+        List<String> values = queryParams().get(key);
+        return values == null ? List.of() : Collections.unmodifiableList(values);
     }
 
     public String getQueryParamOrThrow(String key) {
-        String value = queryParams.get(key);
+        String value = getQueryParam(key).orElse(null);
         if (value == null) {
             throw new BadRequestException("Missing required query parameter: " + key);
         }
@@ -121,27 +325,106 @@ public class Request {
         return value;
     }
 
+    // HTTP/2 proxies may split cookies over several Cookie headers; all of them are read
     public List<Cookie> getAllCookies() {
-        String cookieHeader = headers.getOrDefault("Cookie", "").trim();
-        if (cookieHeader.isEmpty()) {
-            return Collections.emptyList();
-        }
-        List<Cookie> cookies = new ArrayList<>();
-        for (String cookie : cookieHeader.split(";")) {
-            String[] parts = cookie.split("=", 2);
-            if (parts.length == 2) {
-                cookies.add(Cookie.builder()
-                        .name(parts[0].trim())
-                        .value(parts[1].trim())
-                        .build());
-            }
+        if (cookies == null) {
+            cookies = parseCookies();
         }
         return cookies;
     }
 
     public Optional<Cookie> getCookie(String name) {
-        return getAllCookies().stream()
-                .filter(cookie -> cookie.getName().equals(name))
-                .findFirst();
+        for (Cookie cookie : getAllCookies()) {
+            if (cookie.getName().equals(name)) {
+                return Optional.of(cookie);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Attributes are plain fields like the rest of the request: set them from the thread handling it
+    public <T> void setAttribute(AttributeKey<T> key, T value) {
+        int index = key.index();
+        if (attributes == null || index >= attributes.length) {
+            if (value == null) {
+                return;
+            }
+            // Room for the keys created so far, so later ones rarely need another copy
+            int size = Math.max(index + 1, Math.max(8, attributes == null ? 0 : attributes.length * 2));
+            attributes = attributes == null ? new Object[size] : Arrays.copyOf(attributes, size);
+        }
+        attributes[index] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> getAttribute(AttributeKey<T> key) {
+        int index = key.index();
+        return attributes == null || index >= attributes.length
+                ? Optional.empty() : Optional.ofNullable((T) attributes[index]);
+    }
+
+    public <T> T getAttributeOrThrow(AttributeKey<T> key) {
+        return getAttribute(key).orElseThrow(
+                () -> new IllegalStateException("Request attribute not set: " + key.getName()));
+    }
+
+    public boolean hasAttribute(AttributeKey<?> key) {
+        return getAttribute(key).isPresent();
+    }
+
+    public void removeAttribute(AttributeKey<?> key) {
+        if (attributes != null && key.index() < attributes.length) {
+            attributes[key.index()] = null;
+        }
+    }
+
+    // Computes the value on first use and keeps it, so every layer that needs it (auth, tenant lookup,
+    // handler) shares one computation
+    public <T> T computeAttributeIfAbsent(AttributeKey<T> key, Function<Request, T> compute) {
+        Optional<T> existing = getAttribute(key);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        T value = compute.apply(this);
+        setAttribute(key, value);
+        return value;
+    }
+
+    private Map<String, List<String>> queryParams() {
+        if (queryParams == null) {
+            int queryStart = url.indexOf('?');
+            queryParams = queryStart == -1 ? Collections.emptyMap()
+                    : UrlEncodedParser.parse(url, queryStart + 1, url.length());
+        }
+        return queryParams;
+    }
+
+    private List<Cookie> parseCookies() {
+        List<String> cookieHeaders = headers.getAll(Header.COOKIE);
+        if (cookieHeaders.isEmpty()) {
+            return List.of();
+        }
+        List<Cookie> parsed = new ArrayList<>();
+        for (String cookieHeader : cookieHeaders) {
+            int start = 0;
+            while (start < cookieHeader.length()) {
+                int end = cookieHeader.indexOf(';', start);
+                if (end == -1) {
+                    end = cookieHeader.length();
+                }
+                int equals = cookieHeader.indexOf('=', start);
+                if (equals != -1 && equals < end) {
+                    String name = cookieHeader.substring(start, equals).trim();
+                    if (!name.isEmpty()) {
+                        parsed.add(Cookie.builder()
+                                .name(name)
+                                .value(cookieHeader.substring(equals + 1, end).trim())
+                                .build());
+                    }
+                }
+                start = end + 1;
+            }
+        }
+        return Collections.unmodifiableList(parsed);
     }
 }
\ No newline at end of file
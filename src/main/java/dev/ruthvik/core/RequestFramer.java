@@ -0,0 +1,293 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.HttpStatus;
+import dev.ruthvik.exception.BadRequestException;
+import dev.ruthvik.exception.RequestException;
+
+import java.nio.charset.StandardCharsets;
+
+// Tells the NIO engine where the next request ends without parsing it: finds the blank line closing the
+// head, then follows Content-Length or the chunked framing. Progress is kept between calls, so a request
+// split across many reads is scanned once. All offsets are relative to the start of the frame.
+class RequestFramer {
+    static final int INCOMPLETE = -1;
+    // The bytes can't be framed (oversized or malformed); failure() says why, and the connection is answered
+    // with it and closed without the request reaching a handler
+    static final int MALFORMED = -2;
+
+    private static final int MAX_CHUNK_LINE = 1024;
+    // Buffered requests live in one byte[], so bodies past this size can't be framed whatever the config says
+    private static final long MAX_BUFFERED_BODY = Integer.MAX_VALUE / 2;
+    private static final byte[] CONTENT_LENGTH = "content-length".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRANSFER_ENCODING = "transfer-encoding".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CHUNKED = "chunked".getBytes(StandardCharsets.US_ASCII);
+
+    private final int maxHeadSize;
+    private final long maxBodySize;
+
+    private int scanned;
+    private int headStart;
+    private int headEnd;
+    private long contentLength;
+    private boolean chunked;
+    private int chunkCursor;
+    private long chunkedBodySize;
+    private int trailerStart;
+    private RequestException failure;
+
+    RequestFramer(ServerConfig config) {
+        this.maxHeadSize = config.getMaxRequestLineSize() + config.getMaxHeaderSize();
+        this.maxBodySize = Math.min(Math.min(config.getMaxBodySize(), config.getMaxBufferedBodySize()), MAX_BUFFERED_BODY);
+        reset();
+    }
+
+    void reset() {
+        scanned = 0;
+        headStart = -1;
+        headEnd = -1;
+        contentLength = 0;
+        chunked = false;
+        chunkCursor = 0;
+        chunkedBodySize = 0;
+        trailerStart = -1;
+        failure = null;
+    }
+
+    // Why the last frame() returned MALFORMED
+    RequestException failure() {
+        return failure;
+    }
+
+    // Length of the current request's head once it has fully arrived, -1 before that
+    int headLength() {
+        return headEnd;
+    }
+
+    // Returns the absolute end of the request starting at start, INCOMPLETE or MALFORMED
+    int frame(byte[] data, int start, int end) {
+        if (headEnd == -1) {
+            headEnd = findHeadEnd(data, start, end);
+            if (headEnd == -1) {
+                return end - start > maxHeadSize
+                        ? fail(new RequestException("Request header fields too large", HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE))
+                        : INCOMPLETE;
+            }
+            if (!readFraming(data, start)) {
+                return MALFORMED;
+            }
+            chunkCursor = headEnd;
+        }
+        if (!chunked) {
+            long frameLength = headEnd + contentLength;
+            return end - start >= frameLength ? (int) (start + frameLength) : INCOMPLETE;
+        }
+        return frameChunks(data, start, end);
+    }
+
+    // Leading blank lines are skipped like RequestParser does; "\n\n" and "\n\r\n" both end the head
+    private int findHeadEnd(byte[] data, int start, int end) {
+        int length = end - start;
+        while (headStart == -1 && scanned < length) {
+            byte b = data[start + scanned];
+            if (b != '\r' && b != '\n') {
+                headStart = scanned;
+            } else {
+                scanned++;
+            }
+        }
+        for (; scanned < length; scanned++) {
+            if (data[start + scanned] != '\n') {
+                continue;
+            }
+            if (scanned + 1 >= length) {
+                return -1;
+            }
+            byte next = data[start + scanned + 1];
+            if (next == '\n') {
+                return scanned + 2;
+            }
+            if (next == '\r') {
+                if (scanned + 2 >= length) {
+                    return -1;
+                }
+                if (data[start + scanned + 2] == '\n') {
+                    return scanned + 3;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean readFraming(byte[] data, int start) {
+        int limit = start + headEnd;
+        boolean hasLength = false;
+        int encodings = 0;
+        String encoding = "";
+        // The request line may contain ':' in its target, so header scanning starts on the next line
+        int line = indexOf(data, (byte) '\n', start + headStart, limit) + 1;
+        while (line < limit) {
+            int lineEnd = indexOf(data, (byte) '\n', line, limit);
+            int colon = indexOf(data, (byte) ':', line, lineEnd);
+            if (colon != -1) {
+                int nameEnd = colon;
+                while (nameEnd > line && data[nameEnd - 1] == ' ') nameEnd--;
+                if (equalsIgnoreCase(data, line, nameEnd, CONTENT_LENGTH)) {
+                    long length = parseDecimal(data, colon + 1, lineEnd);
+                    if (length < 0) {
+                        fail(new BadRequestException("Invalid Content-Length"));
+                        return false;
+                    }
+                    // Repeats are only acceptable when they all agree, as in RequestParser
+                    if (hasLength && length != contentLength) {
+                        fail(new BadRequestException("Conflicting Content-Length headers"));
+                        return false;
+                    }
+                    hasLength = true;
+                    contentLength = length;
+                } else if (equalsIgnoreCase(data, line, nameEnd, TRANSFER_ENCODING)) {
+                    encodings++;
+                    int valueStart = colon + 1;
+                    int valueEnd = lineEnd;
+                    while (valueStart < valueEnd && data[valueStart] == ' ') valueStart++;
+                    while (valueEnd > valueStart && (data[valueEnd - 1] == ' ' || data[valueEnd - 1] == '\r')) valueEnd--;
+                    chunked = equalsIgnoreCase(data, valueStart, valueEnd, CHUNKED);
+                    encoding += (encodings > 1 ? ", " : "")
+                            + new String(data, valueStart, valueEnd - valueStart, StandardCharsets.ISO_8859_1);
+                }
+            }
+            line = lineEnd + 1;
+        }
+        if (encodings > 0) {
+            // RequestParser joins repeated fields, and only a lone "chunked" is supported
+            if (!chunked || encodings > 1) {
+                fail(new RequestException("Unsupported Transfer-Encoding: " + encoding, HttpStatus.NOT_IMPLEMENTED));
+                return false;
+            }
+            if (hasLength) {
+                fail(new BadRequestException("Content-Length is not allowed with Transfer-Encoding"));
+                return false;
+            }
+            return true;
+        }
+        if (contentLength > maxBodySize) {
+            fail(tooLarge());
+            return false;
+        }
+        return true;
+    }
+
+    private int frameChunks(byte[] data, int start, int end) {
+        int length = end - start;
+        while (true) {
+            int lineEnd = indexOf(data, (byte) '\n', start + chunkCursor, end);
+            if (lineEnd == -1) {
+                return length - chunkCursor > MAX_CHUNK_LINE ? fail(new BadRequestException("Malformed chunk size"))
+                        : INCOMPLETE;
+            }
+            int next = lineEnd + 1 - start;
+            if (trailerStart != -1) {
+                // Trailer fields follow the last chunk until an empty line
+                int lineLength = lineEnd - (start + chunkCursor);
+                if (lineLength == 0 || (lineLength == 1 && data[start + chunkCursor] == '\r')) {
+                    return start + next;
+                }
+                if (next - trailerStart > maxHeadSize) {
+                    return fail(new RequestException("Chunk trailer section too large",
+                            HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE));
+                }
+                chunkCursor = next;
+                continue;
+            }
+            long size = parseHex(data, start + chunkCursor, lineEnd);
+            if (size < 0) {
+                return fail(new BadRequestException("Malformed chunk size"));
+            }
+            if (chunkedBodySize + size > maxBodySize) {
+                return fail(tooLarge());
+            }
+            if (size == 0) {
+                trailerStart = next;
+                chunkCursor = next;
+                continue;
+            }
+            // Chunk data is followed by CRLF before the next size line
+            long chunkEnd = next + size + 2;
+            if (chunkEnd > length) {
+                return INCOMPLETE;
+            }
+            chunkedBodySize += size;
+            chunkCursor = (int) chunkEnd;
+        }
+    }
+
+    private int fail(RequestException e) {
+        failure = e;
+        return MALFORMED;
+    }
+
+    private static RequestException tooLarge() {
+        return new RequestException("Request body too large", HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    private static long parseDecimal(byte[] data, int from, int to) {
+        while (from < to && (data[from] == ' ' || data[from] == '\t')) from++;
+        while (to > from && (data[to - 1] == ' ' || data[to - 1] == '\t' || data[to - 1] == '\r')) to--;
+        if (from == to || to - from > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Chunk size up to an extension (';') or the line end
+    private static long parseHex(byte[] data, int from, int to) {
+        long value = 0;
+        int digits = 0;
+        for (int i = from; i < to; i++) {
+            byte b = data[i];
+            int digit = Character.digit(b, 16);
+            if (digit == -1) {
+                if (b == ';' || b == '\r' || b == ' ' || b == '\t') {
+                    break;
+                }
+                return -1;
+            }
+            if (++digits > 15) {
+                return -1;
+            }
+            value = value * 16 + digit;
+        }
+        return digits == 0 ? -1 : value;
+    }
+
+    private static int indexOf(byte[] data, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // expected must be lower case ASCII
+    private static boolean equalsIgnoreCase(byte[] data, int from, int to, byte[] expected) {
+        if (to - from != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            byte b = data[from + i];
+            if (b >= 'A' && b <= 'Z') b += 32;
+            if (b != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,147 +1,460 @@
 package dev.ruthvik.core;
 
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpMethod;
+import dev.ruthvik.enums.HttpStatus;
 import dev.ruthvik.exception.BadRequestException;
+import dev.ruthvik.exception.RequestException;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 class RequestParser {
-    public static Request parse(InputStream input) {
+    private static final String HTTP_1_0 = "HTTP/1.0";
+    private static final String HTTP_1_1 = "HTTP/1.1";
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+
+    private final InputStream input;
+    private final ServerConfig config;
+    private final int maxRequestLineSize;
+    private final int maxHeaderSize;
+    private final long maxBodySize;
+    private final int maxHeaderCount;
+    // Set when reading from a blocking socket, which enforces the read timeouts as the request progresses
+    private final SocketInput socketInput;
+
+    // Pooled read buffer reused for every request on the connection; [position, limit) holds unread bytes
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    // Whether the last parsed request may still have body bytes on the socket
+    private boolean bodyPending;
+    // Bytes taken off the input so far, for the server's bytes-received counter
+    private long bytesRead;
+
+    RequestParser(InputStream input, ServerConfig config) {
+        this.input = input;
+        this.config = config;
+        this.maxRequestLineSize = config.getMaxRequestLineSize();
+        this.maxHeaderSize = config.getMaxHeaderSize();
+        this.maxBodySize = config.getMaxBodySize();
+        this.maxHeaderCount = config.getMaxHeaderCount();
+        this.socketInput = input instanceof SocketInput socket ? socket : null;
+        // A single line must fit in the buffer, including its CRLF
+        this.buffer = BufferPool.shared().acquireArray(Math.max(maxRequestLineSize, maxHeaderSize) + 2);
+    }
+
+    long bytesRead() {
+        return bytesRead;
+    }
+
+    // Returns the read buffer to the pool once the connection is done with the parser
+    void release() {
+        if (buffer != null) {
+            BufferPool.shared().release(buffer);
+            buffer = null;
+        }
+    }
+
+    // Returns null when the client closed the connection before sending another request
+    Request parse() throws IOException {
+        if (socketInput != null) {
+            if (position < limit) {
+                socketInput.headStarted();
+            } else {
+                socketInput.awaitRequest();
+            }
+        }
+        int lineEnd;
+        // Tolerate stray CRLFs between pipelined requests (RFC 7230 section 3.5)
+        do {
+            lineEnd = nextLine(maxRequestLineSize, HttpStatus.URI_TOO_LONG, "Request line too long");
+            if (lineEnd == -1) {
+                if (position == limit) {
+                    return null;
+                }
+                throw new BadRequestException("Unexpected end of stream while reading request line");
+            }
+        } while (lineEnd == position && consumeLine(lineEnd));
+
+        String method = null;
+        String url = null;
+        String version = null;
+        int firstSpace = indexOf(position, lineEnd, (byte) ' ');
+        int secondSpace = firstSpace == -1 ? -1 : indexOf(firstSpace + 1, lineEnd, (byte) ' ');
+        if (firstSpace > position && secondSpace > firstSpace + 1 && secondSpace + 1 < lineEnd
+                && indexOf(secondSpace + 1, lineEnd, (byte) ' ') == -1) {
+            method = method(position, firstSpace);
+            url = new String(buffer, firstSpace + 1, secondSpace - firstSpace - 1, StandardCharsets.ISO_8859_1);
+            version = version(secondSpace + 1, lineEnd);
+        }
+        consumeLine(lineEnd);
+        if (method == null) {
+            throw new BadRequestException("Invalid request line");
+        }
+
+        Headers headers = parseHeaders();
+
+        if (HTTP_1_1.equals(version) && !headers.contains(Header.HOST)) {
+            throw new BadRequestException("Missing Host header");
+        }
+
+        if (socketInput != null) {
+            socketInput.bodyStarted();
+        }
+        InputStream body = bodyStream(headers);
+        bodyPending = !(body instanceof ContentLengthInputStream fixed && fixed.contentLength == 0);
+        return new Request(method, url, version, headers, body, config);
+    }
+
+    // Checks without blocking whether the client closed its side while a handler runs. Only safe once the
+    // request has no body left on the socket, as a handler may be reading it from another thread; anything
+    // that does arrive (a pipelined request) stays in the buffer for the next parse.
+    boolean peerClosed(SocketChannel channel) throws IOException {
+        if (bodyPending || buffer == null) {
+            return false;
+        }
+        compact();
+        if (limit == buffer.length) {
+            return false;
+        }
+        channel.configureBlocking(false);
         try {
-            String requestLine = readLine(input);
-            if (requestLine == null || requestLine.isEmpty()) {
-                throw new BadRequestException("Empty request line");
+            int read = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit));
+            if (read > 0) {
+                limit += read;
+                bytesRead += read;
             }
+            return read == -1;
+        } finally {
+            channel.configureBlocking(true);
+        }
+    }
+
+    // True when another (pipelined) request is already waiting to be parsed
+    boolean hasPendingInput() throws IOException {
+        return position < limit || input.available() > 0;
+    }
 
-            String[] parts = requestLine.trim().split(" ");
-            if (parts.length != 3) {
-                throw new BadRequestException("Invalid request line");
+    private Headers parseHeaders() throws IOException {
+        Headers headers = new Headers();
+        int headerBytes = 0;
+        int headerCount = 0;
+        while (true) {
+            int lineEnd = nextLine(maxHeaderSize - headerBytes, HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE,
+                    "Request header section too large");
+            if (lineEnd == -1) {
+                throw new BadRequestException("Unexpected end of stream while reading headers");
+            }
+            if (lineEnd == position) {
+                consumeLine(lineEnd);
+                return headers;
+            }
+            headerBytes += lineEnd - position;
+            if (++headerCount > maxHeaderCount) {
+                throw new RequestException("Too many request headers", HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
             }
 
-            String method = parts[0];
-            String url = parts[1];
-            String version = parts[2];
+            int colon = indexOf(position, lineEnd, (byte) ':');
+            if (colon != -1) {
+                int nameStart = skipWhitespace(position, colon);
+                int nameEnd = trimWhitespace(nameStart, colon);
+                int valueStart = skipWhitespace(colon + 1, lineEnd);
+                int valueEnd = trimWhitespace(valueStart, lineEnd);
+                String value = new String(buffer, valueStart, valueEnd - valueStart, StandardCharsets.ISO_8859_1);
+                // Known names go straight to their slot without decoding the name
+                Header known = Headers.known(buffer, nameStart, nameEnd);
+                if (known != null) {
+                    headers.add(known, value);
+                } else {
+                    headers.add(new String(buffer, nameStart, nameEnd - nameStart, StandardCharsets.ISO_8859_1), value);
+                }
+            }
+            consumeLine(lineEnd);
+        }
+    }
 
-            Map<String, String> headers = new HashMap<>();
-            String line;
-            while (!(line = readLine(input)).isEmpty()) {
-                if (line.contains(":")) {
-                    String[] headerParts = line.split(":", 2);
-                    headers.put(headerParts[0].trim(), headerParts[1].trim());
+    // Finds the end of the next line (index of its CR, or LF for bare-LF clients), reading more input as
+    // needed. Returns -1 on end of stream. The line itself starts at position.
+    private int nextLine(int maxLength, HttpStatus tooLongStatus, String tooLongMessage) throws IOException {
+        int scanned = position;
+        while (true) {
+            int newline = indexOf(scanned, limit, (byte) '\n');
+            if (newline != -1) {
+                int lineEnd = newline > position && buffer[newline - 1] == '\r' ? newline - 1 : newline;
+                if (lineEnd - position > maxLength) {
+                    throw new RequestException(tooLongMessage, tooLongStatus);
                 }
+                return lineEnd;
             }
+            if (limit - position > maxLength + 1) {
+                throw new RequestException(tooLongMessage, tooLongStatus);
+            }
+            scanned = limit;
+            int shift = position;
+            if (fill() == -1) {
+                return -1;
+            }
+            scanned -= shift;
+        }
+    }
+
+    // Advances past the line ending at lineEnd; always returns true so it can sit in a loop condition
+    private boolean consumeLine(int lineEnd) {
+        position = buffer[lineEnd] == '\r' ? lineEnd + 2 : lineEnd + 1;
+        return true;
+    }
+
+    // Compacts unread bytes to the front of the buffer and reads more. Returns bytes read or -1 on EOF.
+    private int fill() throws IOException {
+        compact();
+        if (limit == buffer.length) {
+            return 0;
+        }
+        int read = input.read(buffer, limit, buffer.length - limit);
+        if (read > 0) {
+            limit += read;
+            bytesRead += read;
+        }
+        return read;
+    }
+
+    private void compact() {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+    }
 
-            if ("HTTP/1.1".equals(version) && !headers.containsKey("Host")) {
-                throw new BadRequestException("Missing Host header");
+    private int indexOf(int from, int to, byte target) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == target) {
+                return i;
             }
+        }
+        return -1;
+    }
+
+    private int skipWhitespace(int from, int to) {
+        while (from < to && (buffer[from] == ' ' || buffer[from] == '\t')) from++;
+        return from;
+    }
+
+    private int trimWhitespace(int from, int to) {
+        while (to > from && (buffer[to - 1] == ' ' || buffer[to - 1] == '\t')) to--;
+        return to;
+    }
 
-            if (headers.containsKey("Transfer-Encoding") && headers.get("Transfer-Encoding").equals("chunked")) {
-                throw new BadRequestException("Doesn't support chunked request");
+    // Known methods resolve to their shared constant instead of allocating a new String
+    private String method(int from, int to) {
+        int length = to - from;
+        for (HttpMethod method : METHODS) {
+            if (matches(method.name(), from, length)) {
+                return method.name();
             }
+        }
+        return new String(buffer, from, length, StandardCharsets.ISO_8859_1);
+    }
 
-            String contentType = headers.getOrDefault("Content-Type", "");
-            int contentLength = Integer.parseInt(headers.getOrDefault("Content-Length", "0"));
-            String body = "";
-            Map<String, String> formFields = new HashMap<>();
-            Map<String, MultiPartForm.FileItem> fileFields = new HashMap<>();
+    private String version(int from, int to) {
+        int length = to - from;
+        if (matches(HTTP_1_1, from, length)) return HTTP_1_1;
+        if (matches(HTTP_1_0, from, length)) return HTTP_1_0;
+        String version = new String(buffer, from, length, StandardCharsets.ISO_8859_1);
+        throw new RequestException("Unsupported HTTP version: " + version, HttpStatus.HTTP_VERSION_NOT_SUPPORTED);
+    }
 
-            if (contentType.startsWith("multipart/form-data")) {
-                parseMultiPartForm(input, contentType, contentLength, formFields, fileFields);
-            } else if (contentLength > 0) {
-                body = new String(getContent(input, contentLength), StandardCharsets.UTF_8);
+    private boolean matches(String ascii, int from, int length) {
+        if (ascii.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[from + i] != ascii.charAt(i)) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            MultiPartForm multiPartForm = new MultiPartForm(formFields, fileFields);
-            return new Request(method, url, headers, body, multiPartForm);
-        } catch (IOException e) {
-            throw new BadRequestException("Failed to parse request: " + e.getMessage());
+    private InputStream bodyStream(Headers headers) {
+        List<String> transferEncodings = headers.getAll(Header.TRANSFER_ENCODING);
+        if (!transferEncodings.isEmpty()) {
+            String transferEncoding = String.join(", ", transferEncodings);
+            if (!transferEncoding.equalsIgnoreCase("chunked")) {
+                throw new RequestException("Unsupported Transfer-Encoding: " + transferEncoding, HttpStatus.NOT_IMPLEMENTED);
+            }
+            // Both framings at once is a request smuggling vector (RFC 7230 section 3.3.3)
+            if (headers.contains(Header.CONTENT_LENGTH)) {
+                throw new BadRequestException("Content-Length is not allowed with Transfer-Encoding");
+            }
+            return new ChunkedInputStream();
+        }
+        List<String> contentLengths = headers.getAll(Header.CONTENT_LENGTH);
+        if (contentLengths.isEmpty()) {
+            return new ContentLengthInputStream(0);
         }
+        // Repeats are only acceptable when they all agree (RFC 7230 section 3.3.2)
+        long contentLength = parseContentLength(contentLengths.get(0));
+        for (int i = 1; i < contentLengths.size(); i++) {
+            if (parseContentLength(contentLengths.get(i)) != contentLength) {
+                throw new BadRequestException("Conflicting Content-Length headers");
+            }
+        }
+        return new ContentLengthInputStream(contentLength);
     }
 
-    private static void parseMultiPartForm(InputStream input, String contentType, int contentLength, Map<String, String> formFields, Map<String, MultiPartForm.FileItem> fileFields) throws IOException {
-        if (!contentType.contains("boundary=")) {
-            throw new BadRequestException("Missing boundary in multipart form data");
+    // Digits only, as RequestFramer reads it: Long.parseLong alone would also take a sign
+    private static long parseContentLength(String value) {
+        String digits = value.trim();
+        if (digits.isEmpty() || digits.length() > 18 || !digits.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            throw new BadRequestException("Invalid Content-Length: " + value);
         }
-        String boundary = "--" + contentType.split("boundary=", 2)[1];
-        byte[] content = getContent(input, contentLength);
-        String rawBody = new String(content, StandardCharsets.ISO_8859_1);
+        return Long.parseLong(digits);
+    }
 
-        for (String part : rawBody.split(boundary)) {
-            part = part.trim();
-            if (part.isEmpty() || part.equals("--")) continue;
+    // Copies body bytes that are already buffered, or reads straight from the socket once the buffer is drained
+    private int readBody(byte[] target, int offset, int length) throws IOException {
+        if (position < limit) {
+            int read = Math.min(length, limit - position);
+            System.arraycopy(buffer, position, target, offset, read);
+            position += read;
+            return read;
+        }
+        int read = input.read(target, offset, length);
+        if (read > 0) {
+            bytesRead += read;
+        }
+        return read;
+    }
 
-            int separatorIndex = part.indexOf("\r\n\r\n");
-            if (separatorIndex == -1) continue; // invalid
+    private static RequestException bodyTooLarge() {
+        return new RequestException("Request body too large", HttpStatus.PAYLOAD_TOO_LARGE);
+    }
 
-            String headerSection = part.substring(0, separatorIndex);
-            byte[] partBodyBytes = part.substring(separatorIndex + 4).getBytes(StandardCharsets.ISO_8859_1);
+    // Body view that serves already-buffered bytes first and stops exactly at Content-Length,
+    // leaving any pipelined request that follows untouched
+    private final class ContentLengthInputStream extends InputStream {
+        private final long contentLength;
+        private long remaining;
 
-            Map<String, String> partHeaders = new HashMap<>();
-            for (String headerLine : headerSection.split("\r\n")) {
-                if (headerLine.trim().isEmpty()) continue;
-                String[] headerParts = headerLine.split(":", 2);
-                if (headerParts.length == 2) {
-                    partHeaders.put(headerParts[0].trim(), headerParts[1].trim());
-                }
+        private ContentLengthInputStream(long contentLength) {
+            this.contentLength = contentLength;
+            this.remaining = contentLength;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
             }
+            if (contentLength > maxBodySize) {
+                throw bodyTooLarge();
+            }
+            int read = readBody(target, offset, (int) Math.min(length, remaining));
+            if (read == -1) {
+                throw new BadRequestException("Request body is shorter than Content-Length");
+            }
+            remaining -= read;
+            return read;
+        }
+    }
+
+    // Decodes a chunked body as it is read; chunk extensions and trailer fields are discarded
+    private final class ChunkedInputStream extends InputStream {
+        private long chunkRemaining;
+        private long total;
+        private boolean done;
 
-            String disposition = partHeaders.get("Content-Disposition");
-            if (disposition == null) continue;
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
 
-            String name = null, filename = null;
-            for (String param : disposition.split(";")) {
-                param = param.trim();
-                if (param.startsWith("name=")) {
-                    name = param.split("=", 2)[1].replace("\"", "");
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (done) {
+                return -1;
+            }
+            if (chunkRemaining == 0) {
+                chunkRemaining = readChunkSize();
+                if (chunkRemaining == 0) {
+                    skipTrailers();
+                    done = true;
+                    return -1;
                 }
-                if (param.startsWith("filename=")) {
-                    filename = param.split("=", 2)[1].replace("\"", "");
+                total += chunkRemaining;
+                if (total > maxBodySize) {
+                    throw bodyTooLarge();
                 }
             }
-
-            if (filename == null) {
-                formFields.put(name, new String(partBodyBytes, StandardCharsets.UTF_8).trim());
-            } else {
-                MultiPartForm.FileItem file = new MultiPartForm.FileItem();
-                file.setFileName(filename);
-                file.setContent(partBodyBytes);
-                file.setContentType(partHeaders.getOrDefault("Content-Type", "application/octet-stream"));
-                fileFields.put(name, file);
+            int read = readBody(target, offset, (int) Math.min(length, chunkRemaining));
+            if (read == -1) {
+                throw new BadRequestException("Unexpected end of chunked body");
             }
+            chunkRemaining -= read;
+            if (chunkRemaining == 0) {
+                int lineEnd = requireLine("Malformed chunk");
+                if (lineEnd != position) {
+                    throw new BadRequestException("Malformed chunk");
+                }
+                consumeLine(lineEnd);
+            }
+            return read;
         }
-    }
 
-    private static byte[] getContent(InputStream input, int contentLength) throws IOException {
-        if (contentLength <= 0) return new byte[0];
-        byte[] buffer = new byte[contentLength];
-        int read = 0;
-        while (read < contentLength) {
-            int r = input.read(buffer, read, contentLength - read);
-            if (r == -1) break;
-            read += r;
+        private long readChunkSize() throws IOException {
+            int lineEnd = requireLine("Malformed chunk size");
+            long size = 0;
+            int digits = 0;
+            for (int i = position; i < lineEnd && buffer[i] != ';'; i++) {
+                int digit = Character.digit(buffer[i], 16);
+                if (digit == -1) {
+                    if (buffer[i] == ' ' || buffer[i] == '\t') continue;
+                    throw new BadRequestException("Malformed chunk size");
+                }
+                if (++digits > 15) {
+                    throw new RequestException("Chunk too large", HttpStatus.PAYLOAD_TOO_LARGE);
+                }
+                size = (size << 4) | digit;
+            }
+            if (digits == 0) {
+                throw new BadRequestException("Malformed chunk size");
+            }
+            consumeLine(lineEnd);
+            return size;
         }
-        return buffer;
-    }
 
-    private static String readLine(InputStream input) throws IOException {
-        ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream();
-        int previous = -1, current;
-        while ((current = input.read()) != -1) {
-            if (previous == '\r' && current == '\n') {
-                break;
-            }
-            if (previous != -1) {
-                lineBuffer.write(previous);
+        private void skipTrailers() throws IOException {
+            int trailerBytes = 0;
+            int lineEnd;
+            while ((lineEnd = requireLine("Malformed chunk trailer")) != position) {
+                trailerBytes += lineEnd - position;
+                if (trailerBytes > maxHeaderSize) {
+                    throw new RequestException("Chunk trailer section too large", HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+                }
+                consumeLine(lineEnd);
             }
-            previous = current;
+            consumeLine(lineEnd);
         }
-        if (previous != -1 && current == -1) {
-            lineBuffer.write(previous);
+
+        private int requireLine(String malformedMessage) throws IOException {
+            int lineEnd = nextLine(maxHeaderSize, HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE, malformedMessage);
+            if (lineEnd == -1) {
+                throw new BadRequestException("Unexpected end of chunked body");
+            }
+            return lineEnd;
         }
-        return lineBuffer.toString(StandardCharsets.ISO_8859_1);
     }
-}
\ No newline at end of file
+}
@@ -1,31 +1,87 @@
 package dev.ruthvik.core;
 
-import com.google.gson.Gson;
 import dev.ruthvik.enums.Header;
 import dev.ruthvik.enums.HttpStatus;
 import lombok.ToString;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 @ToString
 public class Response {
-    private static final Gson gson = new Gson();
-    private static final String HTTP_VERSION = "HTTP/1.1";
+    private static final int CHUNK_SIZE = 8192;
+    // Serialized JSON up to this size is sent with Content-Length; anything larger is streamed chunked
+    static final int JSON_BUFFER_LIMIT = 64 * 1024;
+    private static final int INITIAL_JSON_BUFFER = 4096;
+    // Bodies that would overflow the connection's write buffer go out together with the head in one writev
+    private static final int GATHERING_WRITE_THRESHOLD = 8192;
+    // File bodies go out in slices of this size, so the engine's write timeout sees progress between them
+    private static final long TRANSFER_SLICE = 256 * 1024;
 
     private HttpStatus status;
-    private final Map<String, String> headers = new HashMap<>();
+    private final Headers headers = new Headers();
     private final List<Cookie> cookies = new ArrayList<>();
     private byte[] bodyBytes = new byte[0];
+    // Value given to setJson; serialized with the server's JsonCodec only once the body is needed
+    @ToString.Exclude
+    private Object json;
+    private boolean jsonPending;
+    // Set for streamed bodies, which are written with chunked transfer encoding instead of Content-Length
+    @ToString.Exclude
+    private BodyWriter bodyWriter;
+    // Set for file bodies, which are sent with FileChannel.transferTo straight from the page cache
+    private Path file;
+    private long filePosition;
+    private long fileLength;
+    // HTTP/1.0 clients can't decode chunks; their streamed bodies end when the connection closes
+    private boolean closeDelimited;
+    // HEAD responses keep the GET headers (including Content-Length) but never write the body
+    private boolean omitBody;
 
+    // Replaces any value the header already has
     public void setHeader(Header key, String value) {
-        headers.put(key.value(), value);
+        headers.set(key, value);
     }
 
     public void setHeader(String key, String value) {
-        headers.put(key, value);
+        headers.set(key, value);
+    }
+
+    // Sends the header once more, for fields that may repeat (Link, Set-Cookie written by hand, ...)
+    public void addHeader(Header key, String value) {
+        headers.add(key, value);
+    }
+
+    public void addHeader(String key, String value) {
+        headers.add(key, value);
+    }
+
+    public void removeHeader(Header key) {
+        headers.remove(key);
+    }
+
+    public Optional<String> getHeader(Header key) {
+        return Optional.ofNullable(headers.get(key));
+    }
+
+    public Optional<String> getHeader(String key) {
+        return Optional.ofNullable(headers.get(key));
+    }
+
+    public HttpStatus getStatus() {
+        return status;
     }
 
     public void addCookie(Cookie cookie) {
@@ -33,28 +89,63 @@ public class Response {
     }
 
     public void setText(String text, HttpStatus status) {
+        clearBody();
         this.bodyBytes = text.getBytes(StandardCharsets.UTF_8);
         this.status = status;
-        this.headers.put("Content-Type", "text/plain; charset=utf-8");
+        this.headers.set(Header.CONTENT_TYPE, "text/plain; charset=utf-8");
     }
 
     public void setHtml(String html, HttpStatus status) {
+        clearBody();
         this.bodyBytes = html.getBytes(StandardCharsets.UTF_8);
         this.status = status;
-        this.headers.put("Content-Type", "text/html; charset=utf-8");
+        this.headers.set(Header.CONTENT_TYPE, "text/html; charset=utf-8");
     }
 
     public void setJson(Object o, HttpStatus status) {
-        this.bodyBytes = gson.toJson(o).getBytes(StandardCharsets.UTF_8);
+        clearBody();
+        this.json = o;
+        this.jsonPending = true;
         this.status = status;
-        this.headers.put("Content-Type", "application/json; charset=utf-8");
+        this.headers.set(Header.CONTENT_TYPE, "application/json; charset=utf-8");
     }
 
     public void send(byte[] body, HttpStatus status) {
+        clearBody();
         this.bodyBytes = body;
         this.status = status;
     }
 
+    public void stream(BodyWriter writer, HttpStatus status) {
+        clearBody();
+        this.bodyWriter = writer;
+        this.status = status;
+    }
+
+    public void sendFile(Path file, HttpStatus status) {
+        try {
+            sendFile(file, 0, Files.size(file), status);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read file " + file, e);
+        }
+    }
+
+    void sendFile(Path file, long position, long length, HttpStatus status) {
+        clearBody();
+        this.file = file;
+        this.filePosition = position;
+        this.fileLength = length;
+        this.status = status;
+    }
+
+    private void clearBody() {
+        this.bodyBytes = new byte[0];
+        this.bodyWriter = null;
+        this.file = null;
+        this.json = null;
+        this.jsonPending = false;
+    }
+
     public void redirect(String url) {
         String redirectUrl = url;
         if (!redirectUrl.startsWith("/")) {
@@ -64,70 +155,389 @@ public class Response {
         this.send(new byte[0], HttpStatus.FOUND);
     }
 
-    private List<String> cookieHeaders() {
-        if (cookies.isEmpty()) return Collections.emptyList();
+    // contentLength applies to in-memory bodies; chunked marks a body streamed with chunked encoding
+    private void writeHead(ResponseHeadWriter head, boolean chunked, long contentLength) {
+        if (status == null) {
+            throw new IllegalStateException("Response status must be set before sending the response.");
+        }
 
-        List<String> headers = new ArrayList<>();
-        for (Cookie cookie : this.cookies) {
-            StringBuilder header = new StringBuilder();
-            header.append("Set-Cookie: ");
-            header.append(cookie.getName().trim()).append('=').append(cookie.getValue().trim()).append("; ");
+        if (!statusAllowsBody()) {
+            headers.remove(Header.CONTENT_LENGTH);
+        } else if (file != null) {
+            headers.remove(Header.CONTENT_LENGTH);
+        } else if (chunked) {
+            headers.remove(Header.CONTENT_LENGTH);
+            headers.set(Header.TRANSFER_ENCODING, "chunked");
+        }
 
-            if (cookie.isHttpOnly()) header.append("HttpOnly; ");
-            if (cookie.getMaxAge() > 0) header.append("Max-Age=").append(cookie.getMaxAge()).append("; ");
-            if (cookie.getPath() != null && !cookie.getPath().isEmpty()) {
-                String path = cookie.getPath().startsWith("/") ? cookie.getPath() : "/" + cookie.getPath();
-                header.append("Path=").append(path).append("; ");
+        head.reset();
+        head.statusLine(status);
+        if (!headers.contains(Header.DATE)) {
+            head.date();
+        }
+        headers.forEachKnown(head::header);
+        if (statusAllowsBody()) {
+            if (file != null) {
+                head.header(Header.CONTENT_LENGTH, fileLength);
+            } else if (bodyWriter == null && !chunked && !headers.contains(Header.CONTENT_LENGTH)) {
+                head.header(Header.CONTENT_LENGTH, contentLength);
             }
-            if (cookie.getDomain() != null && !cookie.getDomain().isEmpty()) {
-                header.append("Domain=").append(cookie.getDomain()).append("; ");
+        }
+        headers.forEachOther(head::header);
+        for (Cookie cookie : cookies) {
+            head.cookie(cookie);
+        }
+        head.end();
+    }
+
+    boolean hasCookies() {
+        return !cookies.isEmpty();
+    }
+
+    // Copy for replaying a buffered response; the body array is shared since it is never modified in place
+    Response copy() {
+        Response copy = new Response();
+        copy.status = status;
+        copy.headers.putAll(headers);
+        copy.cookies.addAll(cookies);
+        copy.bodyBytes = bodyBytes;
+        copy.json = json;
+        copy.jsonPending = jsonPending;
+        return copy;
+    }
+
+    void omitBody() {
+        this.omitBody = true;
+    }
+
+    boolean isStreaming() {
+        return bodyWriter != null;
+    }
+
+    boolean hasPendingJson() {
+        return jsonPending;
+    }
+
+    // Serializes a setJson value ahead of writing, for code that needs the body bytes: it becomes the
+    // in-memory body when it fits in bufferLimit bytes, and a streamed body otherwise
+    void renderJson(JsonCodec codec, int bufferLimit) {
+        if (!jsonPending) {
+            return;
+        }
+        BoundedOutputStream buffer = new BoundedOutputStream(bufferLimit);
+        try {
+            codec.write(json, buffer);
+            bodyBytes = Arrays.copyOf(buffer.buffer(), buffer.size());
+            jsonPending = false;
+        } catch (BufferLimitExceeded e) {
+            // Serialized again, straight to the client, when the response is written
+            Object value = json;
+            bodyWriter = out -> codec.write(value, out);
+            jsonPending = false;
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Failed to serialize JSON response: " + e.getMessage(), e);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    boolean hasFileBody() {
+        return file != null;
+    }
+
+    boolean hasBody() {
+        return status != null && statusAllowsBody();
+    }
+
+    int bodyLength() {
+        return bodyBytes.length;
+    }
+
+    // Characters in the header names and values, for callers keeping responses in memory
+    long headerLength() {
+        long[] length = {0};
+        headers.forEach((name, value) -> length[0] += name.length() + value.length());
+        return length[0];
+    }
+
+    byte[] bodyBytes() {
+        return bodyBytes;
+    }
+
+    void addVary(String headerName) {
+        String vary = headers.get(Header.VARY);
+        if (vary == null) {
+            headers.set(Header.VARY, headerName);
+        } else if (!vary.equals("*") && !vary.toLowerCase(Locale.ROOT).contains(headerName.toLowerCase(Locale.ROOT))) {
+            headers.set(Header.VARY, vary + ", " + headerName);
+        }
+    }
+
+    // Replaces the in-memory or streamed body with its encoded form; Content-Length follows the new bytes
+    void encodeBody(ContentEncoder encoder) throws IOException {
+        if (bodyWriter != null) {
+            BodyWriter original = bodyWriter;
+            bodyWriter = body -> {
+                try (OutputStream encoded = encoder.encode(body)) {
+                    original.writeTo(encoded);
+                }
+            };
+        } else {
+            ByteArrayOutputStream encodedBytes = new ByteArrayOutputStream(bodyBytes.length / 2 + 64);
+            try (OutputStream encoded = encoder.encode(encodedBytes)) {
+                encoded.write(bodyBytes);
             }
-            if (cookie.getSameSite() != null) {
-                header.append("SameSite=").append(cookie.getSameSite()).append("; ");
+            bodyBytes = encodedBytes.toByteArray();
+        }
+        headers.remove(Header.CONTENT_LENGTH);
+        headers.set(Header.CONTENT_ENCODING, encoder.name());
+        String etag = headers.get(Header.ETAG);
+        if (etag != null) {
+            headers.set(Header.ETAG, encodedEtag(etag, encoder.name()));
+        }
+    }
+
+    // A strong ETag names exact bytes, so an encoded body gets its own: "abc" becomes "abc-gzip". StaticFileHandler
+    // tags precompressed .gz files the same way. Weak tags already cover differing bytes and are kept
+    static String encodedEtag(String etag, String coding) {
+        if (etag.length() < 2 || etag.charAt(0) != '"' || etag.charAt(etag.length() - 1) != '"') {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-" + coding + "\"";
+    }
+
+    void useCloseDelimitedBody() {
+        this.closeDelimited = true;
+    }
+
+    // 1xx, 204 and 304 responses never carry a body or Content-Length (RFC 7230 section 3.3)
+    private boolean statusAllowsBody() {
+        int code = status.code();
+        return code >= 200 && code != 204 && code != 304;
+    }
+
+    // channel is the socket's own channel when available, letting file bodies skip the user-space copy and
+    // large byte[] bodies share one gathering write with the head. head is reused across a connection's responses.
+    // Returns the number of bytes written, head included.
+    long sendOutput(OutputStream clientStream, WritableByteChannel channel, ResponseHeadWriter head, JsonCodec codec)
+            throws IOException {
+        if (jsonPending && statusAllowsBody()) {
+            return writeJson(clientStream, channel, head, codec);
+        }
+        writeHead(head, bodyWriter != null && !closeDelimited, bodyBytes.length);
+        if (omitBody || !statusAllowsBody()) {
+            clientStream.write(head.buffer(), 0, head.length());
+            return head.length();
+        }
+        if (file != null) {
+            clientStream.write(head.buffer(), 0, head.length());
+            writeFile(clientStream, channel);
+            return head.length() + fileLength;
+        }
+        if (bodyWriter == null) {
+            return writeBytes(clientStream, channel, head, bodyBytes, bodyBytes.length);
+        }
+        clientStream.write(head.buffer(), 0, head.length());
+        // Streamed length is only known once the writer is done; chunk framing is counted too
+        CountingOutputStream counted = new CountingOutputStream(clientStream);
+        if (closeDelimited) {
+            writeStream(counted);
+        } else {
+            ChunkedOutputStream chunked = new ChunkedOutputStream(counted, CHUNK_SIZE);
+            writeStream(chunked);
+            chunked.close();
+        }
+        return head.length() + counted.count;
+    }
+
+    private static long writeBytes(OutputStream clientStream, WritableByteChannel channel, ResponseHeadWriter head,
+                                   byte[] body, int length) throws IOException {
+        if (channel instanceof GatheringByteChannel gathering && head.length() + length > GATHERING_WRITE_THRESHOLD) {
+            // Earlier pipelined responses may still be buffered and must go first
+            clientStream.flush();
+            ByteBuffer[] buffers = {ByteBuffer.wrap(head.buffer(), 0, head.length()), ByteBuffer.wrap(body, 0, length)};
+            // Both buffers count: an empty body can come with a head too large to go in one write
+            while (buffers[0].hasRemaining() || buffers[1].hasRemaining()) {
+                gathering.write(buffers);
+                // Flushing the now empty stream reports the progress to the engine's write timeout
+                clientStream.flush();
             }
-            if (cookie.isSecure()) header.append("Secure; ");
+        } else {
+            clientStream.write(head.buffer(), 0, head.length());
+            clientStream.write(body, 0, length);
+        }
+        return head.length() + (long) length;
+    }
 
-            headers.add(header.toString().trim());
+    // Serializes into a pooled buffer and sends it with Content-Length when it fits in JSON_BUFFER_LIMIT.
+    // A larger document switches to chunked encoding mid-serialization: the head and the buffered prefix
+    // go out and the rest streams to the client without ever being held in full.
+    private long writeJson(OutputStream clientStream, WritableByteChannel channel, ResponseHeadWriter head,
+                           JsonCodec codec) throws IOException {
+        // HEAD still needs the Content-Length
+        int limit = omitBody ? Integer.MAX_VALUE : JSON_BUFFER_LIMIT;
+        JsonBodyStream body = new JsonBodyStream(clientStream, head, limit);
+        try {
+            try {
+                codec.write(json, body);
+            } catch (IOException | RuntimeException e) {
+                if (body.chunked == null) {
+                    // Nothing sent yet, so the client can still get a 500
+                    throw new IllegalStateException("Failed to serialize JSON response: " + e.getMessage(), e);
+                }
+                throw new IOException("Streaming JSON response failed", e);
+            }
+            if (body.chunked != null) {
+                body.chunked.close();
+                return head.length() + body.counted.count;
+            }
+            writeHead(head, false, body.buffer.size());
+            if (omitBody) {
+                clientStream.write(head.buffer(), 0, head.length());
+                return head.length();
+            }
+            return writeBytes(clientStream, channel, head, body.buffer.buffer(), body.buffer.size());
+        } finally {
+            body.buffer.release();
         }
-        return headers;
     }
 
+    private void writeFile(OutputStream clientStream, WritableByteChannel channel) throws IOException {
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = channel;
+            if (target == null) {
+                target = Channels.newChannel(clientStream);
+            } else {
+                // Headers are still sitting in the stream's buffer and must precede the file bytes
+                clientStream.flush();
+            }
+            long position = filePosition;
+            long remaining = fileLength;
+            while (remaining > 0) {
+                long sent = source.transferTo(position, Math.min(remaining, TRANSFER_SLICE), target);
+                if (sent <= 0 && position >= source.size()) {
+                    throw new IOException("File truncated while sending: " + file);
+                }
+                position += sent;
+                remaining -= sent;
+                if (target == channel) {
+                    // Flushing the now empty stream reports the progress to the engine's write timeout
+                    clientStream.flush();
+                }
+            }
+        }
+    }
 
-    private String buildResponseHttpHeaders() {
-        if (status == null) {
-            throw new IllegalStateException("Response status must be set before sending the response.");
+    private void writeStream(OutputStream body) throws IOException {
+        try {
+            bodyWriter.writeTo(body);
+        } catch (RuntimeException e) {
+            // Headers are already on the wire, so the only way to signal failure is to abort the connection
+            throw new IOException("Streaming response body failed", e);
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    private final class JsonBodyStream extends OutputStream {
+        private final OutputStream clientStream;
+        private final ResponseHeadWriter head;
+        private final int limit;
+        private final PooledOutputStream buffer = new PooledOutputStream(BufferPool.shared(), INITIAL_JSON_BUFFER);
+        private CountingOutputStream counted;
+        private ChunkedOutputStream chunked;
+
+        private JsonBodyStream(OutputStream clientStream, ResponseHeadWriter head, int limit) {
+            this.clientStream = clientStream;
+            this.head = head;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (chunked == null && buffer.size() + len > limit) {
+                writeHead(head, true, -1);
+                clientStream.write(head.buffer(), 0, head.length());
+                counted = new CountingOutputStream(clientStream);
+                chunked = new ChunkedOutputStream(counted, CHUNK_SIZE);
+                chunked.write(buffer.buffer(), 0, buffer.size());
+            }
+            if (chunked != null) {
+                chunked.write(b, off, len);
+            } else {
+                buffer.write(b, off, len);
+            }
         }
 
-        StringBuilder builder = new StringBuilder();
+        // The codec's final flush is left to the connection, which flushes once the response is complete
+        @Override
+        public void flush() {
+        }
+    }
 
-        builder.append(HTTP_VERSION)
-                .append(" ")
-                .append(status.code())
-                .append(" ")
-                .append(status.reason())
-                .append("\r\n");
+    // Pooled buffer that refuses to grow past limit
+    private static final class BoundedOutputStream extends PooledOutputStream {
+        private final int limit;
 
-        headers.putIfAbsent("Content-Length", String.valueOf(bodyBytes.length));
+        private BoundedOutputStream(int limit) {
+            super(BufferPool.shared(), Math.min(limit, INITIAL_JSON_BUFFER));
+            this.limit = limit;
+        }
 
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            builder.append(entry.getKey())
-                    .append(": ")
-                    .append(entry.getValue())
-                    .append("\r\n");
+        @Override
+        public void write(int b) {
+            checkLimit(1);
+            super.write(b);
         }
 
-        for (String cookieHeader : cookieHeaders()) {
-            builder.append(cookieHeader).append("\r\n");
+        @Override
+        public void write(byte[] b, int off, int len) {
+            checkLimit(len);
+            super.write(b, off, len);
         }
 
-        builder.append("\r\n");
-        return builder.toString();
+        private void checkLimit(int extra) {
+            if (size() + extra > limit) {
+                throw BufferLimitExceeded.INSTANCE;
+            }
+        }
     }
 
-    void sendOutput(OutputStream clientStream) throws IOException {
-        byte[] headersBytes = buildResponseHttpHeaders().getBytes(StandardCharsets.ISO_8859_1);
-        clientStream.write(headersBytes);
-        clientStream.write(bodyBytes);
-        clientStream.flush();
+    private static final class BufferLimitExceeded extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private static final BufferLimitExceeded INSTANCE = new BufferLimitExceeded();
+
+        private BufferLimitExceeded() {
+            super("Buffer limit exceeded", null, false, false);
+        }
     }
-}
\ No newline at end of file
+}
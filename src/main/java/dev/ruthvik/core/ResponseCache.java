@@ -0,0 +1,328 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpMethod;
+import dev.ruthvik.enums.HttpStatus;
+import dev.ruthvik.exception.RequestException;
+import lombok.Builder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+// In-process cache for GET responses, attached to the routes it should cache after any authentication:
+//
+//     ResponseCache cache = ResponseCache.builder().maxSize(64 * 1024 * 1024).build();
+//     server.addMiddleware(auth, cache);
+//     server.get("/catalog", handler);
+//
+// A hit is answered without running the middlewares after the cache, and global middlewares run before
+// per-route ones, so a cache added with addGlobalMiddleware would answer ahead of a per-route auth check.
+//
+// Entries are keyed on host, path, query and the configured request headers, and evicted least recently
+// used once maxSize bytes are exceeded or after their TTL. Response Cache-Control is honoured (no-store,
+// private and no-cache are not stored; s-maxage/max-age override the default TTL), as is a request's
+// no-cache/no-store. Requests carrying Authorization or Cookie are only answered from, and only fill, entries
+// whose response is marked public or has s-maxage, as a shared cache must (RFC 7234 section 3.2). Every
+// stored response gets an ETag, so If-None-Match revalidations are answered with 304 without running the
+// handler. Only 200 responses with in-memory bodies and no cookies are stored.
+//
+// With compression on, the encoded copy each coding needs is made by the first hit asking for it and kept with
+// the entry, counted against maxSize, so hits aren't compressed again on every request.
+public class ResponseCache implements AroundMiddleware {
+    private static final long ENTRY_OVERHEAD = 256;
+
+    private final long maxSize;
+    private final long defaultTtlNanos;
+    private final List<Header> keyHeaders;
+
+    // Access-ordered for LRU eviction; a ReentrantLock rather than synchronized so virtual threads don't pin
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long size;
+
+    @Builder
+    private ResponseCache(long maxSize, Duration ttl, List<Header> keyHeaders) {
+        this.maxSize = maxSize > 0 ? maxSize : 32 * 1024 * 1024;
+        this.defaultTtlNanos = (ttl != null ? ttl : Duration.ofMinutes(1)).toNanos();
+        this.keyHeaders = keyHeaders != null ? List.copyOf(keyHeaders) : List.of();
+    }
+
+    @Override
+    public Response handle(Request request, Handler next) throws RequestException {
+        String method = request.getMethod();
+        if (!HttpMethod.GET.name().equals(method) && !HttpMethod.HEAD.name().equals(method)) {
+            return next.handle(request);
+        }
+        String requestCacheControl = request.getHeader(Header.CACHE_CONTROL).orElse("");
+        if (hasDirective(requestCacheControl, "no-store")) {
+            return next.handle(request);
+        }
+
+        // HEAD is answered from (and fills) the GET entry; Connection drops the body
+        String key = key(request);
+        boolean credentials = request.getHeader(Header.AUTHORIZATION).isPresent()
+                || request.getHeader(Header.COOKIE).isPresent();
+        if (!hasDirective(requestCacheControl, "no-cache")) {
+            Entry entry = lookup(key);
+            if (entry != null && (entry.shared || !credentials)) {
+                return replay(key, entry, request);
+            }
+        }
+        return store(key, request, next.handle(request), credentials);
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String key(Request request) {
+        StringBuilder key = new StringBuilder(request.getHeader(Header.HOST).orElse("")).append('\n')
+                .append(request.getUrl());
+        for (Header header : keyHeaders) {
+            key.append('\n').append(request.getHeader(header).orElse(""));
+        }
+        return key.toString();
+    }
+
+    private Entry lookup(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.expiresAt > 0) {
+                remove(key);
+                return null;
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Response store(String key, Request request, Response response, boolean credentials) {
+        long ttlNanos = ttlNanos(response);
+        if (ttlNanos <= 0) {
+            return response;
+        }
+        String cacheControl = response.getHeader(Header.CACHE_CONTROL).orElse("");
+        boolean shared = hasDirective(cacheControl, "public") || hasDirective(cacheControl, "s-maxage");
+        if (credentials && !shared) {
+            return response;
+        }
+        // A JSON body is only stored if it serializes within the cache's size
+        response.renderJson(request.jsonCodec(), (int) Math.min(maxSize, Integer.MAX_VALUE));
+        if (response.isStreaming()) {
+            return response;
+        }
+        String etag = response.getHeader(Header.ETAG).orElse(null);
+        if (etag == null) {
+            etag = etag(response.bodyBytes());
+            response.setHeader(Header.ETAG, etag);
+        }
+        Response stored = response.copy();
+        Compression compression = request.compression();
+        if (compression != null && compression.compresses(stored)) {
+            // Compression adds this to every copy sent; stored here, the 304s carry it as well
+            stored.addVary(Header.ACCEPT_ENCODING.value());
+        }
+        Entry entry = new Entry(stored, etag, shared, System.nanoTime(), System.nanoTime() + ttlNanos);
+        if (entry.size <= maxSize) {
+            lock.lock();
+            try {
+                remove(key);
+                entries.put(key, entry);
+                size += entry.size;
+                evict();
+            } finally {
+                lock.unlock();
+            }
+        }
+        String revalidated = revalidatedEtag(request, entry, encoder(request, entry));
+        return revalidated != null ? entry.notModified(revalidated) : response;
+    }
+
+    private Response replay(String key, Entry entry, Request request) {
+        ContentEncoder encoder = encoder(request, entry);
+        String revalidated = revalidatedEtag(request, entry, encoder);
+        Response replay;
+        if (revalidated != null) {
+            replay = entry.notModified(revalidated);
+        } else if (encoder != null) {
+            replay = variant(key, entry, encoder).copy();
+        } else {
+            replay = entry.response.copy();
+        }
+        replay.setHeader(Header.AGE, Long.toString(Duration.ofNanos(System.nanoTime() - entry.storedAt).toSeconds()));
+        return replay;
+    }
+
+    // Entry's response encoded with encoder, made and counted against maxSize by the first hit that needs it.
+    // Racing hits may both encode; only the first copy is kept
+    private Response variant(String key, Entry entry, ContentEncoder encoder) {
+        Response variant = entry.variants.get(encoder.name());
+        if (variant != null) {
+            return variant;
+        }
+        variant = entry.response.copy();
+        try {
+            variant.encodeBody(encoder);
+        } catch (IOException e) {
+            // Sent unencoded, Compression gets another go at it on the way out
+            return entry.response;
+        }
+        lock.lock();
+        try {
+            if (entries.get(key) == entry && entry.variants.putIfAbsent(encoder.name(), variant) == null) {
+                long variantSize = size(variant);
+                entry.size += variantSize;
+                size += variantSize;
+                evict();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return variant;
+    }
+
+    // The encoding Compression will give this request's copy of entry, null when it gets the stored bytes
+    private static ContentEncoder encoder(Request request, Entry entry) {
+        Compression compression = request.compression();
+        return compression != null && compression.compresses(entry.response) ? compression.negotiate(request) : null;
+    }
+
+    // Drops least recently used entries until the cache fits; the lock must be held
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (size > maxSize && eldest.hasNext()) {
+            size -= eldest.next().getValue().size;
+            eldest.remove();
+        }
+    }
+
+    // 0 when the response must not be stored
+    private long ttlNanos(Response response) {
+        if (response.getStatus() != HttpStatus.OK || response.isStreaming() || response.hasFileBody()
+                || response.hasCookies() || response.getHeader(Header.CONTENT_ENCODING).isPresent()) {
+            return 0;
+        }
+        String vary = response.getHeader(Header.VARY).orElse("");
+        for (String name : vary.split(",")) {
+            String trimmed = name.trim();
+            if (!trimmed.isEmpty() && keyHeaders.stream().noneMatch(h -> h.value().equalsIgnoreCase(trimmed))) {
+                // Varies on something the key doesn't capture (or on "*")
+                return 0;
+            }
+        }
+        String cacheControl = response.getHeader(Header.CACHE_CONTROL).orElse("");
+        if (hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "private")
+                || hasDirective(cacheControl, "no-cache")) {
+            return 0;
+        }
+        long seconds = directiveSeconds(cacheControl, "s-maxage");
+        if (seconds < 0) {
+            seconds = directiveSeconds(cacheControl, "max-age");
+        }
+        return seconds < 0 ? defaultTtlNanos : Duration.ofSeconds(seconds).toNanos();
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            size -= removed.size;
+        }
+    }
+
+    // The ETag to answer 304 with, or null when the client's copy isn't current. Only the tag this request would
+    // be sent counts: the one Response.encodeBody gives the encoded copy when there is an encoder, else the stored one
+    private static String revalidatedEtag(Request request, Entry entry, ContentEncoder encoder) {
+        String header = request.getHeader(Header.IF_NONE_MATCH).orElse(null);
+        if (header == null) {
+            return null;
+        }
+        String etag = encoder != null ? Response.encodedEtag(entry.etag, encoder.name()) : entry.etag;
+        return StaticFileHandler.etagMatches(header, etag) ? etag : null;
+    }
+
+    // Headers are counted at two bytes a character, as Strings hold them
+    private static long size(Response response) {
+        return response.bodyLength() + response.headerLength() * 2;
+    }
+
+    private static String etag(byte[] body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        return "\"" + Integer.toHexString(body.length) + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+
+    private static boolean hasDirective(String cacheControl, String directive) {
+        for (String part : cacheControl.split(",")) {
+            String name = part.trim();
+            int equals = name.indexOf('=');
+            if ((equals == -1 ? name : name.substring(0, equals).trim()).equalsIgnoreCase(directive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // -1 when the directive is absent or malformed
+    private static long directiveSeconds(String cacheControl, String directive) {
+        for (String part : cacheControl.split(",")) {
+            String trimmed = part.trim().toLowerCase(Locale.ROOT);
+            if (trimmed.startsWith(directive + "=")) {
+                try {
+                    return Long.parseLong(trimmed.substring(directive.length() + 1).replace("\"", "").trim());
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static final class Entry {
+        private final Response response;
+        private final String etag;
+        // Marked public or s-maxage, so it may be served to requests carrying credentials
+        private final boolean shared;
+        private final long storedAt;
+        private final long expiresAt;
+        // Encoded copies of response by coding name
+        private final Map<String, Response> variants = new ConcurrentHashMap<>(4);
+        // Grows as variants are added; guarded by the cache's lock
+        private long size;
+
+        private Entry(Response response, String etag, boolean shared, long storedAt, long expiresAt) {
+            this.response = response;
+            this.etag = etag;
+            this.shared = shared;
+            this.storedAt = storedAt;
+            this.expiresAt = expiresAt;
+            this.size = ENTRY_OVERHEAD + size(response);
+        }
+
+        // 304 carries the validators and caching headers of the full response, but no body
+        private Response notModified(String etag) {
+            Response notModified = new Response();
+            notModified.setHeader(Header.ETAG, etag);
+            for (Header header : List.of(Header.CACHE_CONTROL, Header.VARY, Header.LAST_MODIFIED)) {
+                response.getHeader(header).ifPresent(value -> notModified.setHeader(header, value));
+            }
+            notModified.send(new byte[0], HttpStatus.NOT_MODIFIED);
+            return notModified;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+// Serializes the status line and headers straight into a reusable byte[]. Status lines and header
+// names are encoded once per enum constant, and the Date header is re-rendered at most once a second.
+class ResponseHeadWriter {
+    private static final String HTTP_VERSION = "HTTP/1.1";
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] SEPARATOR = {':', ' '};
+    private static final byte[] COOKIE_SEPARATOR = {';', ' '};
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private static final byte[][] STATUS_LINES = new byte[HttpStatus.values().length][];
+    private static final byte[][] HEADER_NAMES = new byte[Header.values().length][];
+
+    static {
+        for (HttpStatus status : HttpStatus.values()) {
+            STATUS_LINES[status.ordinal()] = ascii(HTTP_VERSION + " " + status.code() + " " + status.reason() + "\r\n");
+        }
+        for (Header header : Header.values()) {
+            HEADER_NAMES[header.ordinal()] = ascii(header.value() + ": ");
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private static volatile CachedDate cachedDate = new CachedDate(-1, new byte[0]);
+
+    private byte[] buffer;
+    private int count;
+
+    ResponseHeadWriter() {
+        this.buffer = BufferPool.shared().acquireArray(INITIAL_CAPACITY);
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int length() {
+        return count;
+    }
+
+    void reset() {
+        count = 0;
+    }
+
+    void release() {
+        if (buffer != null) {
+            BufferPool.shared().release(buffer);
+            buffer = null;
+        }
+    }
+
+    void statusLine(HttpStatus status) {
+        write(STATUS_LINES[status.ordinal()]);
+    }
+
+    void header(Header name, String value) {
+        write(HEADER_NAMES[name.ordinal()]);
+        latin1(value);
+        write(CRLF);
+    }
+
+    void header(String name, String value) {
+        latin1(name);
+        write(SEPARATOR);
+        latin1(value);
+        write(CRLF);
+    }
+
+    void header(Header name, long value) {
+        write(HEADER_NAMES[name.ordinal()]);
+        decimal(value);
+        write(CRLF);
+    }
+
+    void date() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedDate date = cachedDate;
+        if (date.second() != second) {
+            date = new CachedDate(second, ascii(HTTP_DATE.format(Instant.ofEpochSecond(second))));
+            cachedDate = date;
+        }
+        write(HEADER_NAMES[Header.DATE.ordinal()]);
+        write(date.bytes());
+        write(CRLF);
+    }
+
+    void cookie(Cookie cookie) {
+        write(HEADER_NAMES[Header.SET_COOKIE.ordinal()]);
+        latin1(cookie.getName().trim());
+        ensureCapacity(1);
+        buffer[count++] = '=';
+        latin1(cookie.getValue().trim());
+
+        if (cookie.isHttpOnly()) attribute("HttpOnly", null);
+        if (cookie.getMaxAge() > 0) {
+            attribute("Max-Age", null);
+            ensureCapacity(1);
+            buffer[count++] = '=';
+            decimal(cookie.getMaxAge());
+        }
+        if (cookie.getPath() != null && !cookie.getPath().isEmpty()) {
+            attribute("Path", cookie.getPath().startsWith("/") ? cookie.getPath() : "/" + cookie.getPath());
+        }
+        if (cookie.getDomain() != null && !cookie.getDomain().isEmpty()) {
+            attribute("Domain", cookie.getDomain());
+        }
+        if (cookie.getSameSite() != null) {
+            attribute("SameSite", cookie.getSameSite());
+        }
+        if (cookie.isSecure()) attribute("Secure", null);
+        write(CRLF);
+    }
+
+    void end() {
+        write(CRLF);
+    }
+
+    private void attribute(String name, String value) {
+        write(COOKIE_SEPARATOR);
+        latin1(name);
+        if (value != null) {
+            ensureCapacity(1);
+            buffer[count++] = '=';
+            latin1(value);
+        }
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    // Header values are ISO-8859-1 on the wire; anything outside that range becomes '?'
+    private void latin1(String value) {
+        int length = value.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            buffer[count++] = c <= 0xFF ? (byte) c : (byte) '?';
+        }
+    }
+
+    private void decimal(long value) {
+        if (value == 0) {
+            ensureCapacity(1);
+            buffer[count++] = '0';
+            return;
+        }
+        if (value < 0) {
+            latin1(Long.toString(value));
+            return;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) digits++;
+        ensureCapacity(digits);
+        for (int i = count + digits - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count += digits;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (count + extra > buffer.length) {
+            byte[] grown = BufferPool.shared().acquireArray(Math.max(buffer.length * 2, count + extra));
+            System.arraycopy(buffer, 0, grown, 0, count);
+            BufferPool.shared().release(buffer);
+            buffer = grown;
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private record CachedDate(long second, byte[] bytes) {
+    }
+}
@@ -1,5 +1,6 @@
 package dev.ruthvik.core;
 
+import dev.ruthvik.enums.Header;
 import dev.ruthvik.enums.HttpMethod;
 import dev.ruthvik.enums.HttpStatus;
 import dev.ruthvik.exception.RequestException;
@@ -7,109 +8,227 @@ import dev.ruthvik.exception.RequestException;
 import java.util.*;
 
 class Router {
-    private final Map<String, Route> routes = new HashMap<>();
-    private final List<Middleware> globalMiddlewares = new ArrayList<>();
+    private static final String[] NO_PARAMS = new String[0];
+
+    // Segment trie compiled at registration time; lookups walk it once per request segment
+    private final Node root = new Node();
+    private final List<AroundMiddleware> globalMiddlewares = new ArrayList<>();
+    private int maxParams;
+
+    public final void add(HttpMethod method, String url, List<AroundMiddleware> middlewareList, Handler handler) {
+        Node node = root;
+        List<String> paramNames = new ArrayList<>();
+        boolean catchAll = false;
+        for (String segment : url.split("/")) {
+            if (segment.isEmpty()) continue;
+            if (catchAll) {
+                throw new IllegalArgumentException("** must be the last segment of a route: " + url);
+            }
 
-    public final void add(HttpMethod method, String url, List<Middleware> middlewareList, Handler handler) {
-        routes.put(url, new Route(method.name(), middlewareList, handler));
+            if (segment.startsWith(":")) {
+                if (node.paramChild == null) node.paramChild = new Node();
+                node = node.paramChild;
+                paramNames.add(segment.substring(1));
+            } else if (segment.equals("**")) {
+                // Catch-all: matches the remaining path, so it has to be the last segment
+                if (node.catchAllChild == null) node.catchAllChild = new Node();
+                node = node.catchAllChild;
+                catchAll = true;
+            } else if (segment.equals("*")) {
+                if (node.wildcardChild == null) node.wildcardChild = new Node();
+                node = node.wildcardChild;
+            } else {
+                node = node.staticChildren.computeIfAbsent(segment, key -> new Node());
+            }
+        }
+        Route route = new Route(method, url, paramNames.toArray(String[]::new), List.copyOf(middlewareList), handler, null);
+        node.routes.put(method, compile(route));
+        maxParams = Math.max(maxParams, paramNames.size());
     }
 
-    void addGlobalMiddleware(Middleware middleware) {
+    // Global middlewares apply to routes registered before them too, so every chain is rebuilt
+    void addGlobalMiddleware(AroundMiddleware middleware) {
         globalMiddlewares.add(middleware);
+        recompile(root);
+    }
+
+    private void recompile(Node node) {
+        node.routes.replaceAll((method, route) -> compile(route));
+        for (Node child : node.staticChildren.values()) recompile(child);
+        if (node.paramChild != null) recompile(node.paramChild);
+        if (node.wildcardChild != null) recompile(node.wildcardChild);
+        if (node.catchAllChild != null) recompile(node.catchAllChild);
+    }
+
+    // Folds global and route middlewares around the handler into one Handler, outermost first
+    private Route compile(Route route) {
+        Handler chain = route.handler();
+        for (int i = route.middlewares().size() - 1; i >= 0; i--) {
+            chain = link(route.middlewares().get(i), chain);
+        }
+        chain = withGlobalMiddlewares(chain);
+        return new Route(route.method(), route.pattern(), route.paramNames(), route.middlewares(), route.handler(), chain);
+    }
+
+    private Handler withGlobalMiddlewares(Handler handler) {
+        Handler chain = handler;
+        for (int i = globalMiddlewares.size() - 1; i >= 0; i--) {
+            chain = link(globalMiddlewares.get(i), chain);
+        }
+        return chain;
+    }
+
+    private static Handler link(AroundMiddleware middleware, Handler next) {
+        return request -> middleware.handle(request, next);
     }
 
     Response match(Request req) {
         String method = req.getMethod();
         String url = req.getUrl();
 
-        for (Map.Entry<String, Route> entry : routes.entrySet()) {
-            String routePattern = entry.getKey();
-            Route route = entry.getValue();
-
-            if (matchRoutePattern(routePattern, url, req)) {
-                if (!route.method().equalsIgnoreCase(method)) {
-                    throw new RequestException("Method [%s] not allowed to this route".formatted(method), HttpStatus.METHOD_NOT_ALLOWED);
-                }
-
-                for (Middleware middleware : globalMiddlewares) {
-                    Optional<Response> globalMiddlewareResponse = middleware.handle(req);
-                    if (globalMiddlewareResponse.isPresent()) {
-                        return globalMiddlewareResponse.get();
-                    }
-                }
-
-                for (Middleware middleware : route.middlewares()) {
-                    Optional<Response> middlewareResponse = middleware.handle(req);
-                    if (middlewareResponse.isPresent()) {
-                        return middlewareResponse.get();
-                    }
-                }
-                return route.handler().handle(req);
+        // Clean up the URL (ignore query params)
+        int queryStart = url.indexOf('?');
+        int pathEnd = queryStart == -1 ? url.length() : queryStart;
+        String[] paramValues = maxParams == 0 ? NO_PARAMS : new String[maxParams];
+
+        HttpMethod httpMethod = resolveMethod(method);
+        Route route = httpMethod == null ? null : find(root, url, 0, pathEnd, httpMethod, paramValues, 0);
+        if (route == null) {
+            // Answered from every route the path matches, whichever method they were registered for
+            Set<HttpMethod> allowed = EnumSet.noneOf(HttpMethod.class);
+            collectMethods(root, url, 0, pathEnd, allowed);
+            if (allowed.isEmpty()) {
+                throw new RequestException("Route not found", HttpStatus.NOT_FOUND);
+            }
+            if (httpMethod == null) {
+                throw new RequestException("Method [%s] not implemented".formatted(method), HttpStatus.NOT_IMPLEMENTED);
             }
+            Response response = new Response();
+            if (httpMethod == HttpMethod.OPTIONS) {
+                response.send(new byte[0], HttpStatus.NO_CONTENT);
+            } else {
+                response.setText("Method [%s] not allowed to this route".formatted(method), HttpStatus.METHOD_NOT_ALLOWED);
+            }
+            response.setHeader(Header.ALLOW, allowHeader(allowed));
+            // Still a response to this path, so CORS, auth and the like get to see (or replace) it
+            return withGlobalMiddlewares(request -> response).handle(req);
         }
-        throw new RequestException("Route not found", HttpStatus.NOT_FOUND);
-    }
 
-    private boolean matchRoutePattern(String routePattern, String url, Request req) {
-        // Clean up the URL (ignore query params)
-        String cleanUrl = url.split("\\?")[0];
-        Map<String, String> pathParams = new HashMap<>();
+        req.setRoutePattern(route.pattern());
+        req.setPathParams(route.pathParams(paramValues));
 
-        String[] routeParts = routePattern.split("/");
-        String[] urlParts = cleanUrl.split("/");
+        return route.chain().handle(req);
+    }
 
-        if (routeParts.length != urlParts.length) {
-            return false;
+    // Depth-first walk preferring static segments, then :params, then *, then ** so the most specific route wins.
+    // A branch whose route lacks the method is backtracked out of, so GET /users/me doesn't hide POST /users/:id
+    private Route find(Node node, String path, int from, int end, HttpMethod method, String[] paramValues, int paramCount) {
+        int start = from;
+        // Skip empty parts (e.g., leading, trailing or repeated slashes)
+        while (start < end && path.charAt(start) == '/') start++;
+        if (start == end) {
+            Route route = node.route(method);
+            if (route != null) return route;
+            return node.catchAllChild != null ? node.catchAllChild.route(method) : null;
         }
 
-        for (int i = 0; i < routeParts.length; i++) {
-            String routePart = routeParts[i];
-            String urlPart = urlParts[i];
-
-            // Skip empty parts (e.g., leading or trailing slashes)
-            if (routePart.isEmpty()) continue;
+        int segmentEnd = path.indexOf('/', start);
+        if (segmentEnd == -1 || segmentEnd > end) segmentEnd = end;
 
-            // If the route part is a parameter (e.g., :id), store it in the pathParams map
-            if (routePart.startsWith(":")) {
-                String paramName = routePart.substring(1); // remove the ':'
-                pathParams.put(paramName, urlPart);
-            }
-            // If the route part is a wildcard (e.g., *), match anything in this segment
-            else if (routePart.equals("*")) {
-                // Wildcard match: We don't need to store anything, just skip it
-                continue;
-            }
-            // If it's a static part, and it doesn't match the URL part, return false
-            else if (!routePart.equals(urlPart)) {
-                return false;
+        if (!node.staticChildren.isEmpty()) {
+            Node child = node.staticChildren.get(path.substring(start, segmentEnd));
+            if (child != null) {
+                Route match = find(child, path, segmentEnd, end, method, paramValues, paramCount);
+                if (match != null) return match;
             }
         }
+        if (node.paramChild != null) {
+            paramValues[paramCount] = path.substring(start, segmentEnd);
+            Route match = find(node.paramChild, path, segmentEnd, end, method, paramValues, paramCount + 1);
+            if (match != null) return match;
+        }
+        if (node.wildcardChild != null) {
+            // Wildcard match: consumes the segment without capturing it
+            Route match = find(node.wildcardChild, path, segmentEnd, end, method, paramValues, paramCount);
+            if (match != null) return match;
+        }
+        return node.catchAllChild != null ? node.catchAllChild.route(method) : null;
+    }
 
-        req.setPathParams(pathParams);
-        parseQueryParams(url, req);
-        return true;
+    // Same walk as find, but through every matching branch, gathering the methods registered on the way.
+    // Only runs when find came back empty, to tell 404 from 405 and build Allow
+    private void collectMethods(Node node, String path, int from, int end, Set<HttpMethod> methods) {
+        int start = from;
+        while (start < end && path.charAt(start) == '/') start++;
+        if (start == end) {
+            methods.addAll(node.routes.keySet());
+            if (node.catchAllChild != null) methods.addAll(node.catchAllChild.routes.keySet());
+            return;
+        }
+
+        int segmentEnd = path.indexOf('/', start);
+        if (segmentEnd == -1 || segmentEnd > end) segmentEnd = end;
+
+        Node child = node.staticChildren.get(path.substring(start, segmentEnd));
+        if (child != null) collectMethods(child, path, segmentEnd, end, methods);
+        if (node.paramChild != null) collectMethods(node.paramChild, path, segmentEnd, end, methods);
+        if (node.wildcardChild != null) collectMethods(node.wildcardChild, path, segmentEnd, end, methods);
+        if (node.catchAllChild != null) methods.addAll(node.catchAllChild.routes.keySet());
     }
 
+    private static HttpMethod resolveMethod(String method) {
+        try {
+            return HttpMethod.valueOf(method);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 
-    private void parseQueryParams(String url, Request req) {
-        if (!url.contains("?")) return;
+    private static String allowHeader(Set<HttpMethod> methods) {
+        Set<HttpMethod> allowed = EnumSet.copyOf(methods);
+        if (allowed.contains(HttpMethod.GET)) allowed.add(HttpMethod.HEAD);
+        allowed.add(HttpMethod.OPTIONS);
+        StringJoiner joiner = new StringJoiner(", ");
+        for (HttpMethod method : allowed) {
+            joiner.add(method.name());
+        }
+        return joiner.toString();
+    }
 
-        String queries = url.split("\\?", 2)[1];
-        String[] queryPairs = queries.split("&");
-        Map<String, String> queryParams = new HashMap<>();
-        for (String pair : queryPairs) {
-            String[] values = pair.split("=");
-            if (values.length == 2) {
-                queryParams.put(values[0].trim(), values[1].trim());
+    private static final class Node {
+        private final Map<String, Node> staticChildren = new HashMap<>();
+        private Node paramChild;
+        private Node wildcardChild;
+        private Node catchAllChild;
+        // One handler per verb so GET and POST on the same path coexist
+        private final Map<HttpMethod, Route> routes = new EnumMap<>(HttpMethod.class);
+
+        private Route route(HttpMethod method) {
+            Route route = routes.get(method);
+            if (route == null && method == HttpMethod.HEAD) {
+                // HEAD falls back to the GET handler; Connection drops the body when writing
+                route = routes.get(HttpMethod.GET);
             }
+            return route;
         }
-        req.setQueryParams(queryParams);
     }
 
     record Route(
-            String method,
-            List<Middleware> middlewares,
-            Handler handler
+            HttpMethod method,
+            String pattern,
+            String[] paramNames,
+            List<AroundMiddleware> middlewares,
+            Handler handler,
+            // Global and route middlewares fused with the handler
+            Handler chain
     ) {
+        Map<String, String> pathParams(String[] paramValues) {
+            if (paramNames.length == 0) return new HashMap<>();
+            Map<String, String> pathParams = new HashMap<>(paramNames.length * 2);
+            for (int i = 0; i < paramNames.length; i++) {
+                pathParams.put(paramNames[i], paramValues[i]);
+            }
+            return pathParams;
+        }
     }
 }
\ No newline at end of file
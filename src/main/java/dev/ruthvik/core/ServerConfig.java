@@ -0,0 +1,124 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Engine;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+@ToString
+@Builder(toBuilder = true)
+@Getter
+public class ServerConfig {
+
+    // How connections are driven; both engines share the same router, handlers and limits
+    @Builder.Default
+    private Engine engine = Engine.BLOCKING;
+
+    // Selector threads used by the NIO engine
+    @Builder.Default
+    private int eventLoops = Runtime.getRuntime().availableProcessors();
+
+    // Upper bound on connections being served at once; further accepts wait for a free slot
+    @Builder.Default
+    private int maxConnections = 10_000;
+
+    // Connections one client address may hold open at once; further ones are answered with 429 and closed.
+    // 0 means no limit, the default, as clients behind a proxy or NAT share an address.
+    @Builder.Default
+    private int maxConnectionsPerAddress = 0;
+
+    // Pending connection queue handed to the OS listen() call
+    @Builder.Default
+    private int backlog = 1024;
+
+    // Bind with SO_REUSEPORT so a new process can listen on the same port before the old one stops; the
+    // kernel spreads incoming connections across both until the old one calls stop()
+    @Builder.Default
+    private boolean reusePort = false;
+
+    // HTTP/1.1 persistent connections; when disabled every response carries "Connection: close"
+    @Builder.Default
+    private boolean keepAlive = true;
+
+    // How long an open connection may sit without sending its next request
+    @Builder.Default
+    private Duration idleTimeout = Duration.ofSeconds(60);
+
+    // Time a request line and headers have to arrive once the first byte has; slower clients get 408
+    @Builder.Default
+    private Duration headerReadTimeout = Duration.ofSeconds(20);
+
+    // Slowest accepted request body upload in bytes per second, averaged over the time spent waiting on the
+    // client rather than on the handler; slower uploads get 408. 0 leaves only idleTimeout between reads.
+    @Builder.Default
+    private long minBodyRate = 240;
+
+    // Time a body may arrive below minBodyRate before the rate is enforced
+    @Builder.Default
+    private Duration bodyRateGracePeriod = Duration.ofSeconds(5);
+
+    // A response that gets no bytes out for this long is aborted, so a client that stops reading can't hold
+    // its connection. Streaming handlers that pause longer between writes need a larger value.
+    @Builder.Default
+    private Duration writeTimeout = Duration.ofSeconds(60);
+
+    // How long an async handler's stage may stay pending before the request is answered with 504
+    @Builder.Default
+    private Duration asyncTimeout = Duration.ofSeconds(30);
+
+    @Builder.Default
+    private int maxRequestsPerConnection = 1000;
+
+    // Longest accepted request line in bytes; longer ones are answered with 414
+    @Builder.Default
+    private int maxRequestLineSize = 8 * 1024;
+
+    // Largest accepted header section in bytes; larger ones are answered with 431
+    @Builder.Default
+    private int maxHeaderSize = 16 * 1024;
+
+    // Requests with more header fields than this are answered with 431
+    @Builder.Default
+    private int maxHeaderCount = 100;
+
+    // Largest request body a handler may read; exceeding it while streaming fails with 413
+    @Builder.Default
+    private long maxBodySize = 32 * 1024 * 1024;
+
+    // The NIO engine reads a whole request before handing it to a handler, so its bodies are also capped at this
+    // many bytes, kept low because every connection may hold one; larger ones get 413. The blocking engine
+    // streams bodies and only applies maxBodySize.
+    @Builder.Default
+    private long maxBufferedBodySize = 1024 * 1024;
+
+    // Uploaded files larger than this many bytes are streamed to a temp file instead of the heap
+    @Builder.Default
+    private long multipartSpillThreshold = 256 * 1024;
+
+    // Where spilled uploads are written; null means the JVM temp directory
+    private Path uploadDirectory;
+
+    // Compress responses for clients that send Accept-Encoding, and serve precompressed .gz static files
+    @Builder.Default
+    private boolean compression = false;
+
+    // In-memory bodies smaller than this are sent as is; streamed bodies are always eligible
+    @Builder.Default
+    private int compressionMinSize = 1024;
+
+    // Encodings offered to clients, most preferred first
+    @Builder.Default
+    private List<ContentEncoder> contentEncoders = List.of(DeflateEncoder.GZIP, DeflateEncoder.DEFLATE);
+
+    // Serializer used by Request.getJson and Response.setJson
+    @Builder.Default
+    private JsonCodec jsonCodec = new GsonCodec();
+
+    public static ServerConfig defaults() {
+        return ServerConfig.builder().build();
+    }
+}
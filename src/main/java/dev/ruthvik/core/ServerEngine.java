@@ -0,0 +1,17 @@
+package dev.ruthvik.core;
+
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+import java.time.Duration;
+
+// Accepts connections from a bound server channel and serves them until it closes or the thread is interrupted
+interface ServerEngine {
+    // How often shutdown checks whether the busy connections have finished
+    long DRAIN_POLL_MILLIS = 10;
+
+    void serve(ServerSocketChannel server) throws IOException, InterruptedException;
+
+    // Closes the server channel serve() is accepting from, closes idle connections, lets busy ones finish the
+    // request they are on until the timeout, then closes whatever is left
+    ShutdownReport shutdown(ServerSocketChannel server, Duration timeout) throws InterruptedException;
+}
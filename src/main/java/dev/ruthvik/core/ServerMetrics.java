@@ -0,0 +1,186 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.HttpStatus;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and per-route latency histograms for one server, recorded by the engines on every exchange.
+// Everything on the recording path is a LongAdder or an atomic array slot, so handler threads never
+// contend on a lock. Routes are keyed by their registered pattern ("/users/:id"), never by the raw URL,
+// which keeps the number of series bounded; requests that matched no route share UNMATCHED_ROUTE.
+//
+//     server.metricsEndpoint("/metrics");
+public final class ServerMetrics {
+    public static final String UNMATCHED_ROUTE = "unmatched";
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Prometheus histogram bucket bounds in seconds, and the same bounds in nanoseconds
+    private static final String[] BUCKET_SECONDS = {
+            "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5", "10"
+    };
+    private static final long[] BUCKET_NANOS = new long[BUCKET_SECONDS.length];
+    private static final HttpStatus[] STATUSES = HttpStatus.values();
+
+    static {
+        for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+            BUCKET_NANOS[i] = new BigDecimal(BUCKET_SECONDS[i]).movePointRight(9).longValueExact();
+        }
+    }
+
+    private final long startedAt = System.nanoTime();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder[] responsesByStatus = new LongAdder[STATUSES.length];
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder activeConnections = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final Map<String, LatencyHistogram> routeLatencies = new ConcurrentHashMap<>();
+
+    ServerMetrics() {
+        for (int i = 0; i < responsesByStatus.length; i++) {
+            responsesByStatus[i] = new LongAdder();
+        }
+    }
+
+    void connectionOpened() {
+        connectionsOpened.increment();
+        activeConnections.increment();
+    }
+
+    void connectionClosed() {
+        activeConnections.decrement();
+    }
+
+    void bytesReceived(long bytes) {
+        if (bytes > 0) {
+            bytesReceived.add(bytes);
+        }
+    }
+
+    // route is the matched pattern, or null when no route matched
+    void record(String route, HttpStatus status, long latencyNanos, long bytes) {
+        requests.increment();
+        responsesByStatus[status.ordinal()].increment();
+        bytesSent.add(bytes);
+        String key = route != null ? route : UNMATCHED_ROUTE;
+        LatencyHistogram histogram = routeLatencies.get(key);
+        if (histogram == null) {
+            histogram = routeLatencies.computeIfAbsent(key, k -> new LatencyHistogram());
+        }
+        histogram.record(latencyNanos);
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    // Average since the server started
+    public double getRequestsPerSecond() {
+        double seconds = (System.nanoTime() - startedAt) / (double) TimeUnit.SECONDS.toNanos(1);
+        return seconds > 0 ? getRequests() / seconds : 0;
+    }
+
+    public long getResponses(HttpStatus status) {
+        return responsesByStatus[status.ordinal()].sum();
+    }
+
+    // Responses with a 4xx or 5xx status
+    public long getErrors() {
+        long errors = 0;
+        for (HttpStatus status : STATUSES) {
+            if (status.code() >= 400) {
+                errors += getResponses(status);
+            }
+        }
+        return errors;
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+
+    public long getActiveConnections() {
+        return activeConnections.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    // Latencies of one route pattern, or null if it has not been requested yet
+    public LatencyHistogram getRouteLatency(String route) {
+        return routeLatencies.get(route);
+    }
+
+    // Prometheus text exposition format, version 0.0.4
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(2048);
+        counter(out, "http4j_requests_total", "Requests answered.", getRequests());
+
+        out.append("# HELP http4j_responses_total Responses by status code.\n");
+        out.append("# TYPE http4j_responses_total counter\n");
+        for (HttpStatus status : STATUSES) {
+            long count = getResponses(status);
+            if (count > 0) {
+                out.append("http4j_responses_total{status=\"").append(status.code()).append("\"} ")
+                        .append(count).append('\n');
+            }
+        }
+
+        counter(out, "http4j_connections_total", "Connections accepted.", getConnectionsOpened());
+        out.append("# HELP http4j_connections_active Connections currently open.\n");
+        out.append("# TYPE http4j_connections_active gauge\n");
+        out.append("http4j_connections_active ").append(getActiveConnections()).append('\n');
+        counter(out, "http4j_received_bytes_total", "Request bytes read from clients.", getBytesReceived());
+        counter(out, "http4j_sent_bytes_total", "Response bytes written to clients.", getBytesSent());
+
+        out.append("# HELP http4j_request_duration_seconds Time from dispatch to the last byte written, by route.\n");
+        out.append("# TYPE http4j_request_duration_seconds histogram\n");
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(routeLatencies).entrySet()) {
+            String route = escapeLabel(entry.getKey());
+            LatencyHistogram histogram = entry.getValue();
+            // Read the total first so the +Inf bucket is never below a finite one recorded concurrently
+            long count = histogram.getCount();
+            long sum = histogram.getTotalNanos();
+            long[] cumulative = histogram.cumulativeCounts(BUCKET_NANOS);
+            for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+                out.append("http4j_request_duration_seconds_bucket{route=\"").append(route)
+                        .append("\",le=\"").append(BUCKET_SECONDS[i]).append("\"} ")
+                        .append(Math.min(cumulative[i], count)).append('\n');
+            }
+            out.append("http4j_request_duration_seconds_bucket{route=\"").append(route).append("\",le=\"+Inf\"} ")
+                    .append(count).append('\n');
+            out.append("http4j_request_duration_seconds_sum{route=\"").append(route).append("\"} ")
+                    .append(sum / (double) TimeUnit.SECONDS.toNanos(1)).append('\n');
+            out.append("http4j_request_duration_seconds_count{route=\"").append(route).append("\"} ")
+                    .append(count).append('\n');
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "ServerMetrics(requests=" + getRequests() + ", errors=" + getErrors()
+                + ", activeConnections=" + getActiveConnections() + ", bytesReceived=" + getBytesReceived()
+                + ", bytesSent=" + getBytesSent() + ")";
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,17 @@
+package dev.ruthvik.core;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Outcome of HttpServer.stop: connections that were busy when the server stopped and finished their current
+// request before the deadline, and connections still busy at the deadline that were closed on their handler.
+// Idle keep-alive connections are closed straight away and counted in neither.
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class ShutdownReport {
+    private final int drained;
+    private final int aborted;
+}
@@ -0,0 +1,147 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.HttpStatus;
+import dev.ruthvik.exception.RequestException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+// Socket input for the blocking engine that enforces the read limits by setting SO_TIMEOUT before every read:
+// idleTimeout while waiting for a request, a fixed headerReadTimeout deadline once its first byte is in, and
+// minBodyRate while the body is read. Only time spent blocked on the client counts against the body rate, so
+// a handler that is slow to consume its body is not held against the upload.
+//
+// A timeout between requests surfaces as SocketTimeoutException and the connection just closes; one in the
+// middle of a request is a 408 RequestException, answered by Connection like any other malformed request.
+final class SocketInput extends InputStream {
+    private enum Phase { IDLE, HEAD, BODY }
+
+    private final Socket socket;
+    private final InputStream input;
+    private final long idleTimeoutNanos;
+    private final long headerTimeoutNanos;
+    private final long minBodyRate;
+    private final long bodyGraceNanos;
+
+    private Phase phase = Phase.IDLE;
+    private long headDeadline;
+    private long bodyBytes;
+    private long bodyWaitNanos;
+    private int soTimeout = -1;
+
+    SocketInput(Socket socket, ServerConfig config) throws IOException {
+        this.socket = socket;
+        this.input = socket.getInputStream();
+        this.idleTimeoutNanos = config.getIdleTimeout().toNanos();
+        this.headerTimeoutNanos = config.getHeaderReadTimeout().toNanos();
+        this.minBodyRate = config.getMinBodyRate();
+        this.bodyGraceNanos = config.getBodyRateGracePeriod().toNanos();
+    }
+
+    // Waiting for the next request; its first byte starts the header deadline
+    void awaitRequest() {
+        phase = Phase.IDLE;
+    }
+
+    // Part of the next request is already buffered, so its header deadline runs from now
+    void headStarted() {
+        if (phase != Phase.HEAD) {
+            phase = Phase.HEAD;
+            headDeadline = System.nanoTime() + headerTimeoutNanos;
+        }
+    }
+
+    void bodyStarted() {
+        phase = Phase.BODY;
+        bodyBytes = 0;
+        bodyWaitNanos = 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) throws IOException {
+        return switch (phase) {
+            case IDLE -> {
+                setTimeout(idleTimeoutNanos);
+                int read = input.read(target, offset, length);
+                if (read > 0) {
+                    headStarted();
+                }
+                yield read;
+            }
+            case HEAD -> {
+                long remaining = headDeadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw headerTimeout();
+                }
+                setTimeout(remaining);
+                try {
+                    yield input.read(target, offset, length);
+                } catch (SocketTimeoutException e) {
+                    throw headerTimeout();
+                }
+            }
+            case BODY -> readBody(target, offset, length);
+        };
+    }
+
+    @Override
+    public int available() throws IOException {
+        return input.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private int readBody(byte[] target, int offset, int length) throws IOException {
+        long budget = idleTimeoutNanos;
+        if (minBodyRate > 0) {
+            // The client must keep up with minBodyRate on average once the grace period is over
+            long allowed = Math.max(bodyGraceNanos, (long) (bodyBytes * 1e9 / minBodyRate));
+            budget = Math.min(budget, allowed - bodyWaitNanos);
+            if (budget <= 0) {
+                throw bodyTimeout();
+            }
+        }
+        setTimeout(budget);
+        long start = System.nanoTime();
+        try {
+            int read = input.read(target, offset, length);
+            if (read > 0) {
+                bodyBytes += read;
+            }
+            return read;
+        } catch (SocketTimeoutException e) {
+            throw bodyTimeout();
+        } finally {
+            bodyWaitNanos += System.nanoTime() - start;
+        }
+    }
+
+    // SO_TIMEOUT is in milliseconds, where 0 means forever
+    private void setTimeout(long nanos) throws IOException {
+        int millis = (int) Math.max(1, Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(nanos + 999_999)));
+        if (millis != soTimeout) {
+            socket.setSoTimeout(millis);
+            soTimeout = millis;
+        }
+    }
+
+    private static RequestException headerTimeout() {
+        return new RequestException("Timed out reading request headers", HttpStatus.REQUEST_TIMEOUT);
+    }
+
+    private static RequestException bodyTimeout() {
+        return new RequestException("Request body arrived too slowly", HttpStatus.REQUEST_TIMEOUT);
+    }
+}
@@ -0,0 +1,326 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpStatus;
+import dev.ruthvik.exception.RequestException;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+class StaticFileHandler implements Handler {
+    private static final String INDEX_FILE = "index.html";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    // IMF-fixdate (RFC 7231 section 7.1.1.1); RFC_1123_DATE_TIME would drop the leading zero of the day
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("html", "text/html; charset=utf-8"),
+            Map.entry("htm", "text/html; charset=utf-8"),
+            Map.entry("css", "text/css; charset=utf-8"),
+            Map.entry("js", "text/javascript; charset=utf-8"),
+            Map.entry("mjs", "text/javascript; charset=utf-8"),
+            Map.entry("json", "application/json; charset=utf-8"),
+            Map.entry("map", "application/json; charset=utf-8"),
+            Map.entry("txt", "text/plain; charset=utf-8"),
+            Map.entry("csv", "text/csv; charset=utf-8"),
+            Map.entry("xml", "application/xml; charset=utf-8"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("png", "image/png"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("webp", "image/webp"),
+            Map.entry("avif", "image/avif"),
+            Map.entry("ico", "image/x-icon"),
+            Map.entry("woff", "font/woff"),
+            Map.entry("woff2", "font/woff2"),
+            Map.entry("ttf", "font/ttf"),
+            Map.entry("otf", "font/otf"),
+            Map.entry("wasm", "application/wasm"),
+            Map.entry("pdf", "application/pdf"),
+            Map.entry("zip", "application/zip"),
+            Map.entry("gz", "application/gzip"),
+            Map.entry("mp4", "video/mp4"),
+            Map.entry("webm", "video/webm"),
+            Map.entry("mp3", "audio/mpeg"),
+            Map.entry("wav", "audio/wav")
+    );
+
+    private final String prefix;
+    private final Path root;
+    // Serve foo.js.gz in place of foo.js to clients accepting gzip, when such a sibling exists
+    private final boolean precompressed;
+
+    StaticFileHandler(String prefix, Path root, boolean precompressed) {
+        this.prefix = normalizePath(prefix);
+        this.root = root.toAbsolutePath().normalize();
+        this.precompressed = precompressed;
+    }
+
+    @Override
+    public Response handle(Request request) {
+        Path file = resolve(request.getUrl());
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new RequestException("File not found", HttpStatus.NOT_FOUND);
+        }
+        if (attributes.isDirectory()) {
+            file = file.resolve(INDEX_FILE);
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                throw new RequestException("File not found", HttpStatus.NOT_FOUND);
+            }
+        }
+        if (!attributes.isRegularFile()) {
+            throw new RequestException("File not found", HttpStatus.NOT_FOUND);
+        }
+
+        String contentType = contentType(file);
+        boolean hasGzipSibling = false;
+        boolean gzipped = false;
+        if (precompressed) {
+            Path sibling = file.resolveSibling(file.getFileName() + ".gz");
+            BasicFileAttributes siblingAttributes = precompressedAttributes(sibling);
+            if (siblingAttributes != null) {
+                hasGzipSibling = true;
+                if (request.getHeader(Header.ACCEPT_ENCODING).map(v -> Compression.quality(v, "gzip") > 0).orElse(false)) {
+                    file = sibling;
+                    attributes = siblingAttributes;
+                    gzipped = true;
+                }
+            }
+        }
+
+        long size = attributes.size();
+        // HTTP dates only carry whole seconds
+        long lastModifiedSeconds = attributes.lastModifiedTime().toInstant().getEpochSecond();
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModifiedSeconds) + "\"";
+        if (gzipped) {
+            etag = Response.encodedEtag(etag, "gzip");
+        }
+        String lastModified = httpDate(lastModifiedSeconds);
+
+        Response response = new Response();
+        response.setHeader(Header.ETAG, etag);
+        response.setHeader(Header.LAST_MODIFIED, lastModified);
+        response.setHeader(Header.ACCEPT_RANGES, "bytes");
+        if (hasGzipSibling) {
+            response.setHeader(Header.VARY, Header.ACCEPT_ENCODING.value());
+        }
+
+        if (notModified(request, etag, lastModifiedSeconds)) {
+            response.send(new byte[0], HttpStatus.NOT_MODIFIED);
+            return response;
+        }
+
+        response.setHeader(Header.CONTENT_TYPE, contentType);
+        if (gzipped) {
+            response.setHeader(Header.CONTENT_ENCODING, "gzip");
+        }
+
+        Optional<String> range = request.getHeader(Header.RANGE);
+        if (range.isPresent() && rangeStillValid(request, etag, lastModifiedSeconds)) {
+            long[] bounds = parseRange(range.get(), size);
+            if (bounds == null) {
+                // Multiple or malformed ranges: fall back to the full representation
+                response.sendFile(file, 0, size, HttpStatus.OK);
+            } else if (bounds.length == 0) {
+                response.setHeader(Header.CONTENT_RANGE, "bytes */" + size);
+                response.send(new byte[0], HttpStatus.RANGE_NOT_SATISFIABLE);
+            } else {
+                response.setHeader(Header.CONTENT_RANGE, "bytes " + bounds[0] + "-" + bounds[1] + "/" + size);
+                response.sendFile(file, bounds[0], bounds[1] - bounds[0] + 1, HttpStatus.PARTIAL_CONTENT);
+            }
+            return response;
+        }
+
+        response.sendFile(file, 0, size, HttpStatus.OK);
+        return response;
+    }
+
+    private Path resolve(String url) {
+        int queryStart = url.indexOf('?');
+        String path = normalizePath(queryStart == -1 ? url : url.substring(0, queryStart));
+        // Checked on whole segments, so neither //assets/x nor /assetsx/y is taken for /assets
+        String relative;
+        if (path.equals(prefix)) {
+            relative = "";
+        } else if (path.startsWith(prefix + "/")) {
+            relative = path.substring(prefix.length() + 1);
+        } else {
+            throw new RequestException("File not found", HttpStatus.NOT_FOUND);
+        }
+        // URLDecoder follows form encoding, so protect literal '+' before decoding the path
+        String decoded;
+        try {
+            decoded = URLDecoder.decode(relative.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new RequestException("File not found", HttpStatus.NOT_FOUND);
+        }
+        while (decoded.startsWith("/")) {
+            decoded = decoded.substring(1);
+        }
+        if (decoded.indexOf('\0') != -1) {
+            throw new RequestException("File not found", HttpStatus.NOT_FOUND);
+        }
+
+        Path file = root.resolve(decoded).normalize();
+        // Reject ../ traversal and symlinks pointing outside the mounted directory
+        if (!file.startsWith(root)) {
+            throw new RequestException("File not found", HttpStatus.NOT_FOUND);
+        }
+        try {
+            if (Files.exists(file, LinkOption.NOFOLLOW_LINKS) && !file.toRealPath().startsWith(root.toRealPath())) {
+                throw new RequestException("File not found", HttpStatus.NOT_FOUND);
+            }
+        } catch (IOException e) {
+            throw new RequestException("File not found", HttpStatus.NOT_FOUND);
+        }
+        return file;
+    }
+
+    // Collapses repeated slashes and resolves . and .. segments, giving "/a/b", or "" for the root
+    static String normalizePath(String path) {
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end == -1) end = path.length();
+            String segment = path.substring(start, end);
+            if (segment.equals("..")) {
+                if (!segments.isEmpty()) segments.remove(segments.size() - 1);
+            } else if (!segment.isEmpty() && !segment.equals(".")) {
+                segments.add(segment);
+            }
+            start = end + 1;
+        }
+        return segments.isEmpty() ? "" : "/" + String.join("/", segments);
+    }
+
+    // Attributes of a usable .gz sibling, or null; it has to pass the same containment check as the original
+    private BasicFileAttributes precompressedAttributes(Path sibling) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(sibling, BasicFileAttributes.class);
+            if (!attributes.isRegularFile() || !sibling.toRealPath().startsWith(root.toRealPath())) {
+                return null;
+            }
+            return attributes;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean notModified(Request request, String etag, long lastModifiedSeconds) {
+        Optional<String> ifNoneMatch = request.getHeader(Header.IF_NONE_MATCH);
+        if (ifNoneMatch.isPresent()) {
+            // If-None-Match takes precedence over If-Modified-Since (RFC 7232 section 6)
+            return etagMatches(ifNoneMatch.get(), etag);
+        }
+        return request.getHeader(Header.IF_MODIFIED_SINCE)
+                .map(StaticFileHandler::parseHttpDate)
+                .map(since -> lastModifiedSeconds <= since)
+                .orElse(false);
+    }
+
+    // If-Range carrying a stale validator means the client wants the whole, current file instead
+    private static boolean rangeStillValid(Request request, String etag, long lastModifiedSeconds) {
+        Optional<String> ifRange = request.getHeader(Header.IF_RANGE);
+        if (ifRange.isEmpty()) {
+            return true;
+        }
+        String validator = ifRange.get().trim();
+        if (validator.startsWith("\"") || validator.startsWith("W/")) {
+            return validator.equals(etag);
+        }
+        Long since = parseHttpDate(validator);
+        return since != null && since == lastModifiedSeconds;
+    }
+
+    // Weak comparison, as If-None-Match requires (RFC 7232 section 3.2)
+    static boolean etagMatches(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns {first, last} for a single satisfiable range, an empty array when unsatisfiable,
+    // or null when the header should be ignored
+    private static long[] parseRange(String header, long size) {
+        String value = header.trim();
+        if (!value.startsWith("bytes=") || value.indexOf(',') != -1) {
+            return null;
+        }
+        String spec = value.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1) {
+            return null;
+        }
+        try {
+            String startText = spec.substring(0, dash).trim();
+            String endText = spec.substring(dash + 1).trim();
+            long first;
+            long last;
+            if (startText.isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(endText);
+                if (suffix <= 0) return new long[0];
+                first = Math.max(0, size - suffix);
+                last = size - 1;
+            } else {
+                first = Long.parseLong(startText);
+                last = endText.isEmpty() ? size - 1 : Math.min(Long.parseLong(endText), size - 1);
+            }
+            if (first >= size || size == 0) {
+                return new long[0];
+            }
+            return last < first ? null : new long[]{first, last};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String contentType(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot == -1) {
+            return DEFAULT_CONTENT_TYPE;
+        }
+        return CONTENT_TYPES.getOrDefault(name.substring(dot + 1).toLowerCase(Locale.ROOT), DEFAULT_CONTENT_TYPE);
+    }
+
+    private static String httpDate(long epochSeconds) {
+        return HTTP_DATE.format(Instant.ofEpochSecond(epochSeconds));
+    }
+
+    private static Long parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package dev.ruthvik.core;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Single-pass decoder for query strings and application/x-www-form-urlencoded bodies. Names and values are
+// percent-decoded as UTF-8 with '+' as a space; a '%' not followed by two hex digits is kept as is rather
+// than failing the request. Parts without a name are skipped and a name without '=' gets an empty value.
+final class UrlEncodedParser {
+
+    private UrlEncodedParser() {
+    }
+
+    // Every value of every name, in the order they appear
+    static Map<String, List<String>> parse(String input, int from, int to) {
+        if (from >= to) {
+            return Collections.emptyMap();
+        }
+        Map<String, List<String>> params = new LinkedHashMap<>();
+        int start = from;
+        while (start <= to) {
+            int end = input.indexOf('&', start);
+            if (end == -1 || end > to) {
+                end = to;
+            }
+            // Only this pair is searched; indexOf would scan the rest of the input for every '='-less pair
+            int equals = start;
+            while (equals < end && input.charAt(equals) != '=') {
+                equals++;
+            }
+            if (equals > start) {
+                String name = decode(input, start, equals);
+                String value = equals < end ? decode(input, equals + 1, end) : "";
+                params.computeIfAbsent(name, key -> new ArrayList<>(1)).add(value);
+            }
+            start = end + 1;
+        }
+        return params;
+    }
+
+    static String decode(String input, int from, int to) {
+        int i = from;
+        while (i < to && input.charAt(i) != '%' && input.charAt(i) != '+') {
+            i++;
+        }
+        if (i == to) {
+            return input.substring(from, to);
+        }
+        StringBuilder out = new StringBuilder(to - from);
+        out.append(input, from, i);
+        // Consecutive escapes form one UTF-8 sequence, so their bytes are collected before decoding
+        ByteArrayOutputStream bytes = null;
+        while (i < to) {
+            char c = input.charAt(i);
+            int high;
+            int low;
+            if (c == '%' && i + 2 < to
+                    && (high = Character.digit(input.charAt(i + 1), 16)) != -1
+                    && (low = Character.digit(input.charAt(i + 2), 16)) != -1) {
+                if (bytes == null) {
+                    bytes = new ByteArrayOutputStream(8);
+                }
+                bytes.write((high << 4) | low);
+                i += 3;
+                continue;
+            }
+            if (bytes != null && bytes.size() > 0) {
+                out.append(bytes.toString(StandardCharsets.UTF_8));
+                bytes.reset();
+            }
+            out.append(c == '+' ? ' ' : c);
+            i++;
+        }
+        if (bytes != null && bytes.size() > 0) {
+            out.append(bytes.toString(StandardCharsets.UTF_8));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,8 @@
+package dev.ruthvik.enums;
+
+public enum Engine {
+    // One virtual thread per connection reading a blocking socket
+    BLOCKING,
+    // Selector event loops own the sockets; handlers run on virtual threads once a request has fully arrived
+    NIO;
+}
@@ -25,15 +25,25 @@ public enum Header {
     IF_RANGE("If-Range"),
     IF_UNMODIFIED_SINCE("If-Unmodified-Since"),
     ORIGIN("Origin"),
+    RANGE("Range"),
     REFERER("Referer"),
     USER_AGENT("User-Agent"),
 
     // -- Response headers
+    ACCEPT_RANGES("Accept-Ranges"),
+    AGE("Age"),
+    ALLOW("Allow"),
+    CONTENT_ENCODING("Content-Encoding"),
     CONTENT_LENGTH("Content-Length"),
+    CONTENT_RANGE("Content-Range"),
     CONTENT_TYPE("Content-Type"),
+    ETAG("ETag"),
+    LAST_MODIFIED("Last-Modified"),
     LOCATION("Location"),
+    RETRY_AFTER("Retry-After"),
     SERVER("Server"),
     SET_COOKIE("Set-Cookie"),
+    VARY("Vary"),
     WWW_AUTHENTICATE("WWW-Authenticate"),
 
     // -- CORS headers
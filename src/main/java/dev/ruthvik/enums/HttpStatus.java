@@ -36,8 +36,11 @@ public enum HttpStatus {
     CONFLICT(409, "Conflict"),
     GONE(410, "Gone"),
     PAYLOAD_TOO_LARGE(413, "Payload Too Large"),
+    URI_TOO_LONG(414, "URI Too Long"),
     UNSUPPORTED_MEDIA_TYPE(415, "Unsupported Media Type"),
+    RANGE_NOT_SATISFIABLE(416, "Range Not Satisfiable"),
     TOO_MANY_REQUESTS(429, "Too Many Requests"),
+    REQUEST_HEADER_FIELDS_TOO_LARGE(431, "Request Header Fields Too Large"),
 
     // 5xx Server Errors
     INTERNAL_SERVER_ERROR(500, "Internal Server Error"),
@@ -0,0 +1,10 @@
+package dev.ruthvik.enums;
+
+public enum RateLimitScope {
+    // One bucket per client address, shared by every route the limiter is attached to
+    CLIENT,
+    // One bucket per route pattern, shared by all clients
+    ROUTE,
+    // One bucket per client address on each route
+    CLIENT_AND_ROUTE;
+}
@@ -3,6 +3,8 @@ package dev.ruthvik.exception;
 import dev.ruthvik.enums.HttpStatus;
 
 public class BadRequestException extends RequestException {
+    private static final long serialVersionUID = 1L;
+
     public BadRequestException(String message) {
         super(message, HttpStatus.BAD_REQUEST);
     }
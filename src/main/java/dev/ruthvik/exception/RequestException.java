@@ -4,6 +4,8 @@ import dev.ruthvik.enums.HttpStatus;
 import lombok.Getter;
 
 public class RequestException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     @Getter
     private final HttpStatus status;
     public RequestException(String message, HttpStatus status) {
@@ -0,0 +1,48 @@
+package dev.ruthvik.core;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Timing loop shared by the *Benchmark mains. These are smoke timings for comparing two builds on one machine,
+// not JMH benchmarks: there is no forking and no control over inlining, so only trust large differences
+// (see benchmarks/README.md, which also covers the JMH versions).
+final class Bench {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    // Every round's results end up here, so the JIT can't prove them unused and drop the work behind them
+    private static volatile long blackhole;
+
+    private Bench() {
+    }
+
+    // Median nanoseconds per run over the measured rounds of iterations runs each. The warmup rounds before
+    // them are identical but unrecorded, so the measured code is already compiled when timing starts.
+    static double nanosPerOp(int iterations, Operation operation) throws IOException {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            round(iterations, operation);
+        }
+        double[] rounds = new double[MEASURED_ROUNDS];
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            rounds[round] = round(iterations, operation) / (double) iterations;
+        }
+        Arrays.sort(rounds);
+        return (rounds[(MEASURED_ROUNDS - 1) / 2] + rounds[MEASURED_ROUNDS / 2]) / 2;
+    }
+
+    private static long round(int iterations, Operation operation) throws IOException {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += operation.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        blackhole += sink;
+        return elapsed;
+    }
+
+    interface Operation {
+        // Returns something derived from the work done, for the blackhole
+        long run() throws IOException;
+    }
+}
@@ -0,0 +1,86 @@
+package dev.ruthvik.core;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares serializing through a String (the old setJson/getJson path) with streaming through the codec,
+// for 1 KB, 100 KB and 10 MB documents. Run with: java dev.ruthvik.core.JsonBenchmark
+public class JsonBenchmark {
+
+    private static final int[] PAYLOAD_SIZES = {1024, 100 * 1024, 10 * 1024 * 1024};
+    private static final Type ITEMS = new TypeToken<List<Item>>() {
+    }.getType();
+
+    public static void main(String[] args) throws IOException {
+        Gson gson = new Gson();
+        JsonCodec codec = new GsonCodec(gson);
+        System.out.printf("%-10s %14s %14s %14s %14s%n", "payload", "string write", "codec write", "string read", "codec read");
+        for (int size : PAYLOAD_SIZES) {
+            List<Item> items = items(size);
+            byte[] json = gson.toJson(items).getBytes(StandardCharsets.UTF_8);
+            // Enough iterations for roughly 10 MB of JSON per round
+            int iterations = Math.max(1, 10 * 1024 * 1024 / json.length);
+
+            double stringWrite = measure(iterations, () -> gson.toJson(items).getBytes(StandardCharsets.UTF_8).length);
+            double codecWrite = measure(iterations, () -> {
+                CountingSink sink = new CountingSink();
+                codec.write(items, sink);
+                return sink.count;
+            });
+            double stringRead = measure(iterations, () -> {
+                List<Item> read = gson.fromJson(new String(json, StandardCharsets.UTF_8), ITEMS);
+                return read.size();
+            });
+            double codecRead = measure(iterations, () -> {
+                List<Item> read = codec.read(new ByteArrayInputStream(json), ITEMS);
+                return read.size();
+            });
+            System.out.printf("%-10s %11.1f us %11.1f us %11.1f us %11.1f us%n", label(json.length),
+                    stringWrite, codecWrite, stringRead, codecRead);
+        }
+    }
+
+    // Microseconds per operation
+    private static double measure(int iterations, Bench.Operation operation) throws IOException {
+        return Bench.nanosPerOp(iterations, operation) / 1000.0;
+    }
+
+    private static List<Item> items(int targetBytes) {
+        List<Item> items = new ArrayList<>();
+        // Each item serializes to roughly 100 bytes
+        for (int i = 0; i < Math.max(1, targetBytes / 100); i++) {
+            items.add(new Item(i, "user-" + i, "user" + i + "@example.com", i % 2 == 0, List.of("alpha", "beta")));
+        }
+        return items;
+    }
+
+    private static String label(int bytes) {
+        return bytes >= 1024 * 1024 ? Math.round(bytes / (1024.0 * 1024)) + " MB" : Math.round(bytes / 1024.0) + " KB";
+    }
+
+    private record Item(int id, String name, String email, boolean active, List<String> tags) {
+    }
+
+    // Stands in for the socket: counts bytes without keeping them
+    private static final class CountingSink extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
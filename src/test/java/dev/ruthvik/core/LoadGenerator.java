@@ -0,0 +1,200 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Engine;
+import dev.ruthvik.enums.HttpStatus;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Closed-loop load test against an HttpServer started in the same JVM: every connection sends a request,
+// reads the whole response and sends the next one straight away, so throughput and latency reflect the
+// server rather than a fixed arrival rate. With keep-alive off each request opens a new connection.
+// Run with: java dev.ruthvik.core.LoadGenerator [connections] [seconds] [keep-alive|close] [BLOCKING|NIO] [path]
+// e.g. java dev.ruthvik.core.LoadGenerator 64 10 keep-alive NIO /json
+public class LoadGenerator {
+
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final DecimalFormat PERCENTILE_FORMAT = new DecimalFormat("0.#");
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        Duration duration = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 10);
+        boolean keepAlive = args.length <= 2 || !args[2].equalsIgnoreCase("close");
+        Engine engine = args.length > 3 ? Engine.valueOf(args[3].toUpperCase()) : Engine.BLOCKING;
+        String path = args.length > 4 ? args[4] : "/hello";
+
+        HttpServer server = new HttpServer(0, ServerConfig.builder()
+                .engine(engine)
+                .maxConnections(Math.max(connections * 2, 1024))
+                .build());
+        server.get("/hello", request -> {
+            Response response = new Response();
+            response.setText("Hello, world!", HttpStatus.OK);
+            return response;
+        });
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rows.add(Map.of("id", i, "name", "user-" + i, "active", i % 2 == 0));
+        }
+        server.get("/json", request -> {
+            Response response = new Response();
+            response.setJson(rows, HttpStatus.OK);
+            return response;
+        });
+        server.get("/users/:id", request -> {
+            Response response = new Response();
+            response.setText("user " + request.getPathParamOrThrow("id"), HttpStatus.OK);
+            return response;
+        });
+        server.start();
+        try {
+            System.out.printf("%d connections, %s, %s engine, GET %s%n", connections,
+                    keepAlive ? "keep-alive" : "connection per request", engine, path);
+            run(server.getPort(), connections, WARMUP, keepAlive, path);
+            Result result = run(server.getPort(), connections, duration, keepAlive, path);
+            result.print(duration);
+        } finally {
+            server.stop(Duration.ofSeconds(5));
+        }
+    }
+
+    private static Result run(int port, int connections, Duration duration, boolean keepAlive, String path)
+            throws InterruptedException {
+        byte[] request = ("GET " + path + " HTTP/1.1\r\n"
+                + "Host: localhost:" + port + "\r\n"
+                + (keepAlive ? "" : "Connection: close\r\n")
+                + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        Result result = new Result();
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            clients.add(Thread.ofVirtual().start(() -> {
+                while (System.nanoTime() - deadline < 0) {
+                    try (Socket socket = new Socket("localhost", port)) {
+                        socket.setTcpNoDelay(true);
+                        InputStream input = new BufferedInputStream(socket.getInputStream());
+                        OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+                        Reply reply;
+                        do {
+                            long start = System.nanoTime();
+                            output.write(request);
+                            output.flush();
+                            reply = readResponse(input, result);
+                            result.latency.record(System.nanoTime() - start);
+                            if (reply.status() != 200) {
+                                result.errors.increment();
+                            }
+                            // The server closes after maxRequestsPerConnection; carry on over a new connection
+                        } while (keepAlive && !reply.close() && System.nanoTime() - deadline < 0);
+                    } catch (IOException e) {
+                        result.errors.increment();
+                    }
+                }
+            }));
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        return result;
+    }
+
+    private static Reply readResponse(InputStream input, Result result) throws IOException {
+        String statusLine = readLine(input);
+        int status = Integer.parseInt(statusLine.substring(9, 12));
+        long contentLength = -1;
+        boolean chunked = false;
+        boolean close = false;
+        String line;
+        while (!(line = readLine(input)).isEmpty()) {
+            int colon = line.indexOf(':');
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                contentLength = Long.parseLong(value);
+            } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                chunked = value.equalsIgnoreCase("chunked");
+            } else if (name.equalsIgnoreCase("Connection")) {
+                close = value.equalsIgnoreCase("close");
+            }
+        }
+        long bodyBytes = 0;
+        if (chunked) {
+            long size;
+            while ((size = Long.parseLong(readLine(input).split(";")[0].trim(), 16)) > 0) {
+                bodyBytes += skip(input, size);
+                readLine(input);
+            }
+            while (!readLine(input).isEmpty()) {
+                // trailers
+            }
+        } else if (contentLength > 0) {
+            bodyBytes = skip(input, contentLength);
+        }
+        result.bytes.add(bodyBytes);
+        return new Reply(status, close);
+    }
+
+    private static String readLine(InputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = input.read()) != '\n') {
+            if (b == -1) {
+                throw new IOException("Connection closed mid-response");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    private static long skip(InputStream input, long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            long skipped = input.skip(remaining);
+            if (skipped <= 0) {
+                if (input.read() == -1) {
+                    throw new IOException("Connection closed mid-body");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+        return length;
+    }
+
+    private record Reply(int status, boolean close) {
+    }
+
+    private static final class Result {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private void print(Duration duration) {
+            double seconds = duration.toNanos() / 1e9;
+            System.out.printf("requests  %d (%.0f/s), errors %d, body %.1f MB/s%n", latency.getCount(),
+                    latency.getCount() / seconds, errors.sum(), bytes.sum() / seconds / (1024 * 1024));
+            StringBuilder percentiles = new StringBuilder("latency  ");
+            for (double percentile : PERCENTILES) {
+                percentiles.append(String.format(" p%s %.0fus", PERCENTILE_FORMAT.format(percentile),
+                        latency.getValueAtPercentile(percentile) / 1000.0));
+            }
+            System.out.println(percentiles.append(String.format(" mean %.0fus",
+                    latency.getTotalNanos() / 1000.0 / Math.max(1, latency.getCount()))));
+        }
+    }
+}
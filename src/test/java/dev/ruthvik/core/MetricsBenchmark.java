@@ -0,0 +1,58 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.HttpStatus;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Measures the per-request cost of ServerMetrics.record, single-threaded and with threads contending on
+// the same route. Run with: java dev.ruthvik.core.MetricsBenchmark
+public class MetricsBenchmark {
+
+    private static final String[] ROUTES = {"/", "/users/:id", "/users/:id/orders", "/assets/**"};
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+    // Records per round, split across the threads
+    private static final int RECORDS_PER_ROUND = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-8s %12s%n", "threads", "ns/record");
+        for (int threads : THREAD_COUNTS) {
+            System.out.printf("%-8d %12.1f%n", threads, measure(threads));
+        }
+    }
+
+    // Each timed operation is one round of records spread over the threads, so warmup runs contended too
+    private static double measure(int threads) throws IOException {
+        ServerMetrics metrics = new ServerMetrics();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            Future<?>[] futures = new Future<?>[threads];
+            double nanosPerRound = Bench.nanosPerOp(1, () -> {
+                for (int i = 0; i < threads; i++) {
+                    futures[i] = executor.submit(() -> record(metrics, RECORDS_PER_ROUND / threads));
+                }
+                try {
+                    for (Future<?> future : futures) {
+                        future.get(1, TimeUnit.MINUTES);
+                    }
+                } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                    throw new IllegalStateException(e);
+                }
+                return metrics.hashCode();
+            });
+            // CPU time per record across the cores in use; contention shows up as this rising with threads
+            int cores = Math.min(threads, Runtime.getRuntime().availableProcessors());
+            return nanosPerRound * cores / RECORDS_PER_ROUND;
+        }
+    }
+
+    private static void record(ServerMetrics metrics, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            metrics.record(ROUTES[i & 3], HttpStatus.OK, 50_000 + (i & 0xFFFF), 512);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package dev.ruthvik.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+// Measures RequestParser.parse for a minimal GET, a browser-like GET with a large header section, and a
+// multipart upload parsed through streamMultiPartFormData. Requests are replayed from memory back to back,
+// as pipelined requests on one connection. Run with: java dev.ruthvik.core.RequestParserBenchmark
+public class RequestParserBenchmark {
+
+    private static final int MAX_ITERATIONS_PER_ROUND = 100_000;
+    // Larger requests run fewer iterations, so each round parses roughly this much input
+    private static final long BYTES_PER_ROUND = 32L * 1024 * 1024;
+    private static final String BOUNDARY = "----http4jBenchmarkBoundary";
+
+    public static void main(String[] args) throws IOException {
+        System.out.printf("%-18s %8s %12s %12s%n", "request", "bytes", "ns/parse", "MB/s");
+        report("small headers", smallRequest(), false);
+        report("large headers", largeRequest(), false);
+        report("multipart", multipartRequest(), true);
+    }
+
+    private static void report(String label, byte[] request, boolean multipart) throws IOException {
+        double nanos = measure(request, multipart);
+        System.out.printf("%-18s %8d %12.1f %12.1f%n", label, request.length, nanos, request.length / nanos * 1000);
+    }
+
+    // Nanoseconds per request; warmup and measured rounds share the parser
+    private static double measure(byte[] request, boolean multipart) throws IOException {
+        int iterations = (int) Math.min(MAX_ITERATIONS_PER_ROUND, BYTES_PER_ROUND / request.length);
+        ServerConfig config = ServerConfig.defaults();
+        RequestParser parser = new RequestParser(new RepeatingInputStream(request), config);
+        try {
+            return Bench.nanosPerOp(iterations, () -> parseOne(parser, multipart));
+        } finally {
+            parser.release();
+        }
+    }
+
+    private static long parseOne(RequestParser parser, boolean multipart) throws IOException {
+        Request request = parser.parse();
+        long sink = request.getUrl().length();
+        if (multipart) {
+            long[] parts = new long[1];
+            request.streamMultiPartFormData((name, value) -> parts[0] += value.length(),
+                    (name, file) -> parts[0] += file.getSize());
+            request.cleanup();
+            sink += parts[0];
+        }
+        // Anything a handler left unread, as Connection does before the next request
+        request.discardUnreadBody(Long.MAX_VALUE);
+        return sink;
+    }
+
+    private static byte[] smallRequest() {
+        return ("GET /api/v1/users/42 HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] largeRequest() {
+        StringBuilder request = new StringBuilder("GET /api/v1/users/42/orders?page=2&sort=desc HTTP/1.1\r\n")
+                .append("Host: localhost:8080\r\n")
+                .append("User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0 Safari/537.36\r\n")
+                .append("Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8\r\n")
+                .append("Accept-Language: en-US,en;q=0.9\r\n")
+                .append("Accept-Encoding: gzip, deflate, br\r\n")
+                .append("Connection: keep-alive\r\n")
+                .append("Cache-Control: max-age=0\r\n")
+                .append("Referer: https://example.com/dashboard\r\n")
+                .append("Cookie: session=").append("s".repeat(64)).append("; theme=dark; csrf=").append("c".repeat(32)).append("\r\n");
+        // Tracing and proxy headers the server doesn't know by name
+        for (int i = 0; i < 20; i++) {
+            request.append("X-Trace-Field-").append(i).append(": ").append("v".repeat(24)).append("\r\n");
+        }
+        return request.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] multipartRequest() {
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                + "Quarterly report\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"description\"\r\n\r\n"
+                + "d".repeat(512) + "\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"report.csv\"\r\n"
+                + "Content-Type: text/csv\r\n\r\n"
+                + "id,name,amount\n".repeat(1000) + "\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+        String head = "POST /upload HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Content-Type: multipart/form-data; boundary=" + BOUNDARY + "\r\n"
+                + "Content-Length: " + body.length() + "\r\n"
+                + "\r\n";
+        return (head + body).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    // Endless stream of the same request, handed out in socket-sized reads
+    private static final class RepeatingInputStream extends InputStream {
+        private static final int MAX_READ = 16 * 1024;
+
+        private final byte[] request;
+        private int position;
+
+        private RepeatingInputStream(byte[] request) {
+            this.request = request;
+        }
+
+        @Override
+        public int read() {
+            int value = request[position] & 0xFF;
+            position = (position + 1) % request.length;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            int read = Math.min(Math.min(length, MAX_READ), request.length - position);
+            System.arraycopy(request, position, target, offset, read);
+            position = (position + read) % request.length;
+            return read;
+        }
+    }
+}
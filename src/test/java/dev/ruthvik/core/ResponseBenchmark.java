@@ -0,0 +1,75 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpStatus;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Measures Response.sendOutput for the common body kinds, from building the response in a handler to the
+// bytes reaching a buffered socket stream (which discards them). Run with: java dev.ruthvik.core.ResponseBenchmark
+public class ResponseBenchmark {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_ITERATIONS_PER_ROUND = 200_000;
+    // Larger responses run fewer iterations, so each round writes roughly this much output
+    private static final long BYTES_PER_ROUND = 64L * 1024 * 1024;
+
+    public static void main(String[] args) throws IOException {
+        byte[] payload = new byte[64 * 1024];
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            rows.add(Map.of("id", i, "name", "user-" + i, "active", i % 2 == 0));
+        }
+
+        System.out.printf("%-14s %10s %12s %12s%n", "response", "bytes", "ns/send", "MB/s");
+        report("text", () -> {
+            Response response = new Response();
+            response.setText("Hello, world!", HttpStatus.OK);
+            return response;
+        });
+        report("text+headers", () -> {
+            Response response = new Response();
+            response.setHeader(Header.CACHE_CONTROL, "no-cache");
+            response.setHeader("X-Request-Id", "0f8fad5b-d9cb-469f-a165-70867728950e");
+            response.addCookie(Cookie.builder().name("session").value("abc123").path("/").httpOnly(true).build());
+            response.setText("Hello, world!", HttpStatus.OK);
+            return response;
+        });
+        report("bytes 64 KB", () -> {
+            Response response = new Response();
+            response.send(payload, HttpStatus.OK);
+            return response;
+        });
+        report("json 200 rows", () -> {
+            Response response = new Response();
+            response.setJson(rows, HttpStatus.OK);
+            return response;
+        });
+        report("stream 64 KB", () -> {
+            Response response = new Response();
+            response.stream(out -> {
+                for (int i = 0; i < payload.length; i += 4096) {
+                    out.write(payload, i, 4096);
+                }
+            }, HttpStatus.OK);
+            return response;
+        });
+    }
+
+    private static void report(String label, Supplier<Response> handler) throws IOException {
+        JsonCodec codec = ServerConfig.defaults().getJsonCodec();
+        ResponseHeadWriter head = new ResponseHeadWriter();
+        OutputStream output = new BufferedOutputStream(OutputStream.nullOutputStream(), BUFFER_SIZE);
+
+        long bytes = handler.get().sendOutput(output, null, head, codec);
+        int iterations = (int) Math.min(MAX_ITERATIONS_PER_ROUND, BYTES_PER_ROUND / bytes);
+        double nanos = Bench.nanosPerOp(iterations, () -> handler.get().sendOutput(output, null, head, codec));
+        System.out.printf("%-14s %10d %12.1f %12.1f%n", label, bytes, nanos, bytes / nanos * 1000);
+    }
+}
@@ -0,0 +1,62 @@
+package dev.ruthvik.core;
+
+import dev.ruthvik.enums.Header;
+import dev.ruthvik.enums.HttpMethod;
+import dev.ruthvik.enums.HttpStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Measures Router.match latency as the route table grows. Run with: java dev.ruthvik.core.RouterBenchmark
+public class RouterBenchmark {
+
+    private static final int[] ROUTE_COUNTS = {10, 100, 1000};
+    private static final int ITERATIONS_PER_ROUND = 200_000;
+
+    public static void main(String[] args) throws IOException {
+        System.out.printf("%-10s %12s%n", "routes", "ns/match");
+        for (int routeCount : ROUTE_COUNTS) {
+            System.out.printf("%-10d %12.1f%n", routeCount, measure(routeCount));
+        }
+    }
+
+    private static double measure(int routeCount) throws IOException {
+        Router router = new Router();
+        Response ok = new Response();
+        ok.setText("ok", HttpStatus.OK);
+
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < routeCount; i++) {
+            switch (i % 3) {
+                case 0 -> {
+                    router.add(HttpMethod.GET, "/api/v1/resource" + i, List.of(), req -> ok);
+                    urls.add("/api/v1/resource" + i);
+                }
+                case 1 -> {
+                    router.add(HttpMethod.GET, "/api/v1/resource" + i + "/:id", List.of(), req -> ok);
+                    urls.add("/api/v1/resource" + i + "/42");
+                }
+                default -> {
+                    router.add(HttpMethod.GET, "/api/v1/resource" + i + "/:id/items/:itemId", List.of(), req -> ok);
+                    urls.add("/api/v1/resource" + i + "/42/items/7?expand=true");
+                }
+            }
+        }
+
+        Headers headers = new Headers();
+        headers.set(Header.HOST, "localhost");
+        Request[] requests = new Request[1024];
+        Random random = new Random(42);
+        for (int i = 0; i < requests.length; i++) {
+            String url = urls.get(random.nextInt(urls.size()));
+            requests[i] = new Request("GET", url, "HTTP/1.1", headers, InputStream.nullInputStream(), ServerConfig.defaults());
+        }
+
+        int[] next = {0};
+        return Bench.nanosPerOp(ITERATIONS_PER_ROUND,
+                () -> router.match(requests[next[0]++ & (requests.length - 1)]).hashCode());
+    }
+}
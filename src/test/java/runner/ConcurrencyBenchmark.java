@@ -0,0 +1,112 @@
+package runner;
+
+import dev.ruthvik.core.HttpServer;
+import dev.ruthvik.core.Response;
+import dev.ruthvik.core.ServerConfig;
+import dev.ruthvik.enums.Engine;
+import dev.ruthvik.enums.HttpStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Closed-loop load test: N clients hammer a handler that simulates a slow backend call.
+// maxConnections(1) reproduces the old accept-then-join behaviour for comparison; the last column runs the NIO engine.
+public class ConcurrencyBenchmark {
+
+    private static final int[] CLIENT_COUNTS = {1, 4, 16, 64};
+    private static final long WARMUP_MILLIS = 1_000;
+    private static final long RUN_MILLIS = 3_000;
+    private static final long HANDLER_LATENCY_MILLIS = 5;
+
+    private static final byte[] REQUEST = ("GET /work HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "Connection: close\r\n" +
+            "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+    public static void main(String[] args) throws Exception {
+        int serialPort = 3101;
+        int concurrentPort = 3102;
+        int nioPort = 3103;
+        startServer(serialPort, ServerConfig.builder().maxConnections(1).build());
+        startServer(concurrentPort, ServerConfig.defaults());
+        startServer(nioPort, ServerConfig.builder().engine(Engine.NIO).build());
+
+        // Unrecorded run so every server's request path is compiled before the first row
+        for (int port : new int[]{serialPort, concurrentPort, nioPort}) {
+            measure(port, CLIENT_COUNTS[CLIENT_COUNTS.length - 1], WARMUP_MILLIS);
+        }
+
+        System.out.printf("%-10s %15s %15s %15s%n", "clients", "serial req/s", "concurrent req/s", "nio req/s");
+        for (int clients : CLIENT_COUNTS) {
+            double serial = measure(serialPort, clients, RUN_MILLIS);
+            double concurrent = measure(concurrentPort, clients, RUN_MILLIS);
+            double nio = measure(nioPort, clients, RUN_MILLIS);
+            System.out.printf("%-10d %15.1f %15.1f %15.1f%n", clients, serial, concurrent, nio);
+        }
+        System.exit(0);
+    }
+
+    private static void startServer(int port, ServerConfig config) {
+        HttpServer server = new HttpServer(port, config);
+        server.get("/work", request -> {
+            try {
+                Thread.sleep(HANDLER_LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Response response = new Response();
+            response.setText("ok", HttpStatus.OK);
+            return response;
+        });
+        // Returns once the port is accepting, so no need to poll it
+        server.start();
+    }
+
+    private static double measure(int port, int clients, long millis) throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            workers.add(Thread.ofPlatform().start(() -> {
+                while (running.get()) {
+                    if (sendRequest(port)) {
+                        completed.increment();
+                    }
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        Thread.sleep(millis);
+        running.set(false);
+        long elapsed = System.nanoTime() - start;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return completed.sum() / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static boolean sendRequest(int port) {
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(REQUEST);
+            out.flush();
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[1024];
+            while (in.read(buffer) != -1) {
+                // drain until the server closes the connection
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}